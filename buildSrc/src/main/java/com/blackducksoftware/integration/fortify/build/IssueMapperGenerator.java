@@ -0,0 +1,96 @@
+package com.blackducksoftware.integration.fortify.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates BlackDuckIssueRowMapping, the reflection-free copy of CSV values into BlackDuckIssue, from the @Parsed
+ * annotations of BlackDuckIssue. Every annotated field is matched to the BlackDuckColumn constant of the same header,
+ * a header without a column fails the build instead of leaving the field empty at runtime.
+ * Sources are read as text, the plugin classes are not compiled yet when the generator runs.
+ */
+public final class IssueMapperGenerator {
+
+    private static final String PACKAGE = "com.blackducksoftware.integration.fortify.parser";
+
+    private static final String CLASS_NAME = "BlackDuckIssueRowMapping";
+
+    private static final Pattern PARSED_FIELD = Pattern.compile("@Parsed\\(field\\s*=\\s*\"([^\"]+)\"\\)\\s*private\\s+(\\w+)\\s+(\\w+)\\s*;");
+
+    private static final Pattern COLUMN_CONSTANT = Pattern.compile("^\\s*([A-Z][A-Z0-9_]*)\\(\"([^\"]+)\"", Pattern.MULTILINE);
+
+    private IssueMapperGenerator() {
+    }
+
+    /**
+     * @param issueSource
+     *            source file of BlackDuckIssue
+     * @param columnSource
+     *            source file of BlackDuckColumn
+     * @param outputDirectory
+     *            root directory of the generated sources
+     * @throws IOException
+     *             if a source cannot be read or the generated source cannot be written
+     */
+    public static void generate(final File issueSource, final File columnSource, final File outputDirectory) throws IOException {
+        final Map<String, String> columns = new LinkedHashMap<>();
+        final Matcher columnMatcher = COLUMN_CONSTANT.matcher(read(columnSource));
+        while (columnMatcher.find()) {
+            columns.put(columnMatcher.group(2), columnMatcher.group(1));
+        }
+
+        final StringBuilder mappings = new StringBuilder();
+        final Matcher fieldMatcher = PARSED_FIELD.matcher(read(issueSource));
+        while (fieldMatcher.find()) {
+            final String header = fieldMatcher.group(1);
+            final String type = fieldMatcher.group(2);
+            final String field = fieldMatcher.group(3);
+            final String column = columns.get(header);
+            if (column == null) {
+                throw new IllegalStateException("No BlackDuckColumn with header \"" + header + "\" for field " + field + " of BlackDuckIssue");
+            }
+            final String value;
+            if ("String".equals(type)) {
+                value = "mapper.value(row, BlackDuckColumn." + column + ")";
+            } else if ("BigDecimal".equals(type)) {
+                value = "mapper.decimalValue(row, BlackDuckColumn." + column + ")";
+            } else {
+                throw new IllegalStateException("Unsupported type " + type + " of field " + field + " of BlackDuckIssue");
+            }
+            mappings.append("        issue.set").append(Character.toUpperCase(field.charAt(0))).append(field.substring(1))
+                    .append('(').append(value).append(");\n");
+        }
+        if (mappings.length() == 0) {
+            throw new IllegalStateException("No @Parsed fields found in " + issueSource);
+        }
+
+        final String source = "package " + PACKAGE + ";\n"
+                + "\n"
+                + "/**\n"
+                + " * Copies CSV values into BlackDuckIssue without reflection.\n"
+                + " * Generated from the @Parsed annotations of BlackDuckIssue by the generateIssueMapper build task, do not edit.\n"
+                + " */\n"
+                + "final class " + CLASS_NAME + " {\n"
+                + "\n"
+                + "    private " + CLASS_NAME + "() {\n"
+                + "    }\n"
+                + "\n"
+                + "    static void map(final BlackDuckIssueMapper mapper, final String[] row, final BlackDuckIssue issue) {\n"
+                + mappings
+                + "    }\n"
+                + "}\n";
+        final File packageDirectory = new File(outputDirectory, PACKAGE.replace('.', File.separatorChar));
+        Files.createDirectories(packageDirectory.toPath());
+        Files.write(new File(packageDirectory, CLASS_NAME + ".java").toPath(), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
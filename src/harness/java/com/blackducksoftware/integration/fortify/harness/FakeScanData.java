@@ -0,0 +1,91 @@
+package com.blackducksoftware.integration.fortify.harness;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+
+/**
+ * ScanData of a single uploaded file, as SSC passes it to the plugin. The in-memory variant serves the report from a
+ * byte array, the file-backed variant opens a FileInputStream on every call like SSC does for uploads stored on disk,
+ * so the parser can map the file into memory.
+ */
+public final class FakeScanData implements ScanData {
+
+    private final String sessionId;
+
+    private final String entryName;
+
+    private final byte[] content;
+
+    private final Path file;
+
+    private FakeScanData(final String sessionId, final String entryName, final byte[] content, final Path file) {
+        this.sessionId = sessionId;
+        this.entryName = entryName;
+        this.content = content;
+        this.file = file;
+    }
+
+    /**
+     * @param sessionId
+     *            upload session ID, null if SSC does not provide one
+     * @param entryName
+     *            name of the uploaded file, for example report.csv or report.zip
+     * @param content
+     *            uploaded bytes
+     * @return scan data reading the upload from memory
+     */
+    public static FakeScanData inMemory(final String sessionId, final String entryName, final byte[] content) {
+        return new FakeScanData(sessionId, entryName, content, null);
+    }
+
+    /**
+     * @param sessionId
+     *            upload session ID, null if SSC does not provide one
+     * @param file
+     *            uploaded file, its name is the entry name
+     * @return scan data reading the upload from the file
+     */
+    public static FakeScanData ofFile(final String sessionId, final Path file) {
+        return new FakeScanData(sessionId, file.getFileName().toString(), null, file);
+    }
+
+    @Override
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public List<ScanEntry> getScanEntries() {
+        return Collections.singletonList(() -> entryName);
+    }
+
+    @Override
+    public InputStream getInputStream(final ScanEntry scanEntry) throws IOException {
+        if (!entryName.equals(scanEntry.getEntryName())) {
+            throw new FileNotFoundException("No entry " + scanEntry.getEntryName());
+        }
+        return open();
+    }
+
+    @Override
+    public InputStream getInputStream(final Predicate<String> matcher) throws IOException {
+        if (!matcher.test(entryName)) {
+            throw new FileNotFoundException("No entry matching the predicate");
+        }
+        return open();
+    }
+
+    private InputStream open() throws IOException {
+        return file == null ? new ByteArrayInputStream(content) : new FileInputStream(file.toFile());
+    }
+}
@@ -0,0 +1,508 @@
+package com.blackducksoftware.integration.fortify.harness;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+import com.fortify.plugin.spi.VulnerabilityAttribute;
+
+/**
+ * VulnerabilityHandler standing in for SSC. Completed vulnerabilities are discarded, kept in memory or written to a
+ * file, one line per vulnerability. Every completion can be delayed to simulate the time SSC spends persisting a
+ * vulnerability, and the bytes allocated by the calling threads between two completions can be counted, which is the
+ * allocation cost of parsing and building one vulnerability. Thread safe, every calling thread gets a builder of its
+ * own. In discarding mode builder calls allocate nothing, so counted allocations are the plugin's own.
+ */
+public final class FakeVulnerabilityHandler implements VulnerabilityHandler, Closeable {
+
+    /**
+     * Latencies up to this are busy waited, parking the thread is too coarse for them.
+     */
+    private static final long SPIN_LIMIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * What happens to completed vulnerabilities.
+     */
+    public enum Output {
+        DISCARD,
+        MEMORY,
+        FILE
+    }
+
+    private final Output output;
+
+    private final List<RecordedVulnerability> vulnerabilities = Collections.synchronizedList(new ArrayList<>());
+
+    private final BufferedWriter writer;
+
+    private final ThreadLocal<Builder> builders = ThreadLocal.withInitial(Builder::new);
+
+    private final LongAdder started = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    private volatile long latencyNanos;
+
+    private volatile com.sun.management.ThreadMXBean allocationCounter;
+
+    private FakeVulnerabilityHandler(final Output output, final BufferedWriter writer) {
+        this.output = output;
+        this.writer = writer;
+    }
+
+    /**
+     * @return handler counting vulnerabilities only
+     */
+    public static FakeVulnerabilityHandler discarding() {
+        return new FakeVulnerabilityHandler(Output.DISCARD, null);
+    }
+
+    /**
+     * @return handler keeping the vulnerabilities, see {@link #getVulnerabilities()}
+     */
+    public static FakeVulnerabilityHandler inMemory() {
+        return new FakeVulnerabilityHandler(Output.MEMORY, null);
+    }
+
+    /**
+     * @param file
+     *            file receiving one line per vulnerability: the ID followed by tab separated name=value pairs
+     * @return handler writing the vulnerabilities to the file, must be closed
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    public static FakeVulnerabilityHandler toFile(final Path file) throws IOException {
+        return new FakeVulnerabilityHandler(Output.FILE, Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    public Output getOutput() {
+        return output;
+    }
+
+    /**
+     * @param latencyNanos
+     *            time every completeVulnerability call takes, 0 for none
+     */
+    public void setLatency(final long latencyNanos) {
+        if (latencyNanos < 0) {
+            throw new IllegalArgumentException("Latency must not be negative, got " + latencyNanos);
+        }
+        this.latencyNanos = latencyNanos;
+    }
+
+    public long getLatency() {
+        return latencyNanos;
+    }
+
+    /**
+     * Counting reads the allocated bytes of the calling thread on every completion, see {@link #getAllocatedBytes()}.
+     *
+     * @param countAllocations
+     *            true to count allocations
+     * @throws UnsupportedOperationException
+     *             if the JVM does not measure allocations per thread
+     */
+    public void setCountAllocations(final boolean countAllocations) {
+        if (!countAllocations) {
+            allocationCounter = null;
+            return;
+        }
+        final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            throw new UnsupportedOperationException("Thread allocation counting is not available in this JVM");
+        }
+        final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threadBean;
+        if (!counter.isThreadAllocatedMemorySupported()) {
+            throw new UnsupportedOperationException("Thread allocation counting is not supported by this JVM");
+        }
+        counter.setThreadAllocatedMemoryEnabled(true);
+        allocationCounter = counter;
+    }
+
+    public boolean isCountAllocations() {
+        return allocationCounter != null;
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder startStaticVulnerability(final String id) {
+        started.increment();
+        final Builder builder = builders.get();
+        builder.start(id);
+        return builder;
+    }
+
+    /**
+     * @return number of started vulnerabilities
+     */
+    public long getStarted() {
+        return started.sum();
+    }
+
+    /**
+     * @return number of completed vulnerabilities
+     */
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * @return bytes allocated by the calling threads from their first call to their last completion, 0 unless
+     *         allocations are counted
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * @return completed vulnerabilities in completion order, empty unless kept in memory
+     */
+    public List<RecordedVulnerability> getVulnerabilities() {
+        synchronized (vulnerabilities) {
+            return new ArrayList<>(vulnerabilities);
+        }
+    }
+
+    /**
+     * Forgets the vulnerabilities and counts, so the handler can be reused for another upload.
+     */
+    public void reset() {
+        vulnerabilities.clear();
+        started.reset();
+        completed.reset();
+        allocatedBytes.reset();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            synchronized (writer) {
+                writer.close();
+            }
+        }
+    }
+
+    private void completed(final String id, final Map<String, Object> values) {
+        if (output == Output.MEMORY) {
+            vulnerabilities.add(new RecordedVulnerability(id, new LinkedHashMap<>(values)));
+        } else if (output == Output.FILE) {
+            write(id, values);
+        }
+        completed.increment();
+        final long latency = latencyNanos;
+        if (latency > 0) {
+            delay(latency);
+        }
+    }
+
+    private void write(final String id, final Map<String, Object> values) {
+        final StringBuilder line = new StringBuilder(id);
+        for (final Map.Entry<String, Object> value : values.entrySet()) {
+            line.append('\t').append(value.getKey()).append('=').append(escape(String.valueOf(value.getValue())));
+        }
+        try {
+            synchronized (writer) {
+                writer.append(line).append('\n');
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\r", "\\r").replace("\n", "\\n");
+    }
+
+    private static void delay(final long nanos) {
+        final long deadline = System.nanoTime() + nanos;
+        if (nanos <= SPIN_LIMIT_NANOS) {
+            while (System.nanoTime() - deadline < 0) {
+                // busy wait
+            }
+            return;
+        }
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Vulnerability passed to the handler, values are keyed by setter name without "set" and by attribute name for
+     * custom attributes.
+     */
+    public static final class RecordedVulnerability {
+
+        private final String id;
+
+        private final Map<String, Object> values;
+
+        RecordedVulnerability(final String id, final Map<String, Object> values) {
+            this.id = id;
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Map<String, Object> getValues() {
+            return values;
+        }
+
+        public Object get(final String name) {
+            return values.get(name);
+        }
+
+        @Override
+        public String toString() {
+            return id + values;
+        }
+    }
+
+    /**
+     * Builder of one thread, reused for all its vulnerabilities.
+     */
+    private final class Builder implements StaticVulnerabilityBuilder {
+
+        private final Map<String, Object> values = new LinkedHashMap<>();
+
+        private String id;
+
+        /**
+         * Allocated bytes of the thread at its last completion, -1 before its first call while counting.
+         */
+        private long lastAllocatedBytes = -1;
+
+        void start(final String id) {
+            this.id = id;
+            values.clear();
+            final com.sun.management.ThreadMXBean counter = allocationCounter;
+            if (counter != null && lastAllocatedBytes < 0) {
+                lastAllocatedBytes = counter.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        private StaticVulnerabilityBuilder record(final String name, final Object value) {
+            if (output != Output.DISCARD) {
+                values.put(name, value);
+            }
+            return this;
+        }
+
+        @Override
+        public void completeVulnerability() {
+            final com.sun.management.ThreadMXBean counter = allocationCounter;
+            if (counter != null && lastAllocatedBytes >= 0) {
+                final long allocated = counter.getThreadAllocatedBytes(Thread.currentThread().getId());
+                allocatedBytes.add(allocated - lastAllocatedBytes);
+                lastAllocatedBytes = allocated;
+            }
+            completed(id, values);
+            values.clear();
+            if (counter != null) {
+                // the handler's own work is not charged to the next vulnerability
+                lastAllocatedBytes = counter.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setAccuracy(final Float accuracy) {
+            return record("accuracy", accuracy);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setAnalyzer(final String analyzer) {
+            return record("analyzer", analyzer);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setEngineType(final String engineType) {
+            return record("engineType", engineType);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setCategory(final String category) {
+            return record("category", category);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSubCategory(final String subCategory) {
+            return record("subCategory", subCategory);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setMappedCategory(final String mappedCategory) {
+            return record("mappedCategory", mappedCategory);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setConfidence(final Float confidence) {
+            return record("confidence", confidence);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setPriority(final Priority priority) {
+            return record("priority", priority);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setImpact(final Float impact) {
+            return record("impact", impact);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilityAbstract(final String vulnerabilityAbstract) {
+            return record("vulnerabilityAbstract", vulnerabilityAbstract);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilityRecommendation(final String vulnerabilityRecommendation) {
+            return record("vulnerabilityRecommendation", vulnerabilityRecommendation);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setKingdom(final String kingdom) {
+            return record("kingdom", kingdom);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setLikelihood(final Float likelihood) {
+            return record("likelihood", likelihood);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilityType(final String vulnerabilityType) {
+            return record("vulnerabilityType", vulnerabilityType);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilitySubtype(final String vulnerabilitySubtype) {
+            return record("vulnerabilitySubtype", vulnerabilitySubtype);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setProbability(final Float probability) {
+            return record("probability", probability);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setRuleGuid(final String ruleGuid) {
+            return record("ruleGuid", ruleGuid);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSeverity(final Float severity) {
+            return record("severity", severity);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setDecimalCustomAttributeValue(final VulnerabilityAttribute vulnerabilityAttribute, final BigDecimal attributeValue) {
+            return record(vulnerabilityAttribute.attributeName(), attributeValue);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setStringCustomAttributeValue(final VulnerabilityAttribute vulnerabilityAttribute, final String attributeValue) {
+            return record(vulnerabilityAttribute.attributeName(), attributeValue);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setDateCustomAttributeValue(final VulnerabilityAttribute vulnerabilityAttribute, final Date attributeValue) {
+            return record(vulnerabilityAttribute.attributeName(), attributeValue);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setClassName(final String className) {
+            return record("className", className);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setShortFileName(final String shortFileName) {
+            return record("shortFileName", shortFileName);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setFileName(final String fileName) {
+            return record("fileName", fileName);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setFunctionName(final String functionName) {
+            return record("functionName", functionName);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setLineNumber(final Integer lineNumber) {
+            return record("lineNumber", lineNumber);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSourceFile(final String sourceFile) {
+            return record("sourceFile", sourceFile);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSourceLine(final Integer sourceLine) {
+            return record("sourceLine", sourceLine);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setPackageName(final String packageName) {
+            return record("packageName", packageName);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSink(final String sink) {
+            return record("sink", sink);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSinkContext(final String sinkContext) {
+            return record("sinkContext", sinkContext);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSource(final String source) {
+            return record("source", source);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSourceContext(final String sourceContext) {
+            return record("sourceContext", sourceContext);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setMinVirtualCallConfidence(final Float minVirtualCallConfidence) {
+            return record("minVirtualCallConfidence", minVirtualCallConfidence);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setRemediationConstant(final Float remediationConstant) {
+            return record("remediationConstant", remediationConstant);
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setTaintFlag(final String taintFlag) {
+            return record("taintFlag", taintFlag);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.blackducksoftware.integration.fortify.harness;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+import com.blackducksoftware.integration.fortify.parser.BlackDuckColumn;
+
+/**
+ * Generates synthetic Hub vulnerability reports for benchmarks and load tests.
+ * Value distribution follows real exports: few projects and components, a handful of distinct dates,
+ * long quoted descriptions and remediation comments containing commas, quotes and line breaks.
+ */
+public final class HubReportGenerator {
+
+    private static final String[] COMPONENTS = { "Apache Tomcat", "Apache Struts", "jackson-databind", "Spring Framework", "OpenSSL", "Log4j",
+            "Apache Commons Collections", "Bouncy Castle", "jQuery", "Netty" };
+
+    private static final String[] SEVERITIES = { "HIGH", "MEDIUM", "LOW" };
+
+    private static final String[] SOURCES = { "NVD", "BDSA" };
+
+    private static final String[] REMEDIATION_STATUSES = { "NEW", "REMEDIATION_REQUIRED", "IGNORED", "DUPLICATE" };
+
+    private static final String[] DATES = { "2016-10-27", "2017-05-15", "2017-09-04", "2018-01-22", "2018-02-22", "2018-06-30" };
+
+    private static final String SENTENCE = "Improper input validation in the request parser allows remote attackers to execute arbitrary code, "
+            + "bypass \"\"security constraints\"\" or cause a denial of service via crafted payloads. ";
+
+    private static final File REPORT_DIRECTORY = new File(System.getProperty("java.io.tmpdir"), "blackduck-reports");
+
+    private HubReportGenerator() {
+    }
+
+    /**
+     * Returns report with requested number of rows, generating it on first use.
+     *
+     * @param rows
+     *            number of data rows
+     * @return report file
+     * @throws IOException
+     *             if the report cannot be written
+     */
+    public static File report(final int rows) throws IOException {
+        final File report = new File(REPORT_DIRECTORY, "hub-report-" + rows + ".csv");
+        if (!report.exists()) {
+            if (!REPORT_DIRECTORY.isDirectory() && !REPORT_DIRECTORY.mkdirs()) {
+                throw new IOException("Unable to create " + REPORT_DIRECTORY);
+            }
+            final File temp = new File(REPORT_DIRECTORY, report.getName() + ".tmp");
+            try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8), 1 << 16)) {
+                write(writer, rows);
+            }
+            if (!temp.renameTo(report)) {
+                throw new IOException("Unable to create " + report);
+            }
+        }
+        return report;
+    }
+
+    public static void write(final Writer writer, final int rows) throws IOException {
+        final Random random = new Random(rows);
+        final BlackDuckColumn[] columns = BlackDuckColumn.values();
+        for (int i = 0; i < columns.length; i++) {
+            writer.write(i == 0 ? "" : ",");
+            writer.write(columns[i].getHeader());
+        }
+        writer.write('\n');
+        final String projectId = UUID.nameUUIDFromBytes("project".getBytes(StandardCharsets.UTF_8)).toString();
+        final String versionId = UUID.nameUUIDFromBytes("version".getBytes(StandardCharsets.UTF_8)).toString();
+        for (int row = 0; row < rows; row++) {
+            final String component = COMPONENTS[random.nextInt(COMPONENTS.length)];
+            final String version = (1 + random.nextInt(9)) + "." + random.nextInt(20) + "." + random.nextInt(40);
+            final String date = DATES[random.nextInt(DATES.length)];
+            writer.write("solrWar,4.10.4,");
+            writer.write(projectId);
+            writer.write(',');
+            writer.write(versionId);
+            writer.write(",,");
+            writer.write(component);
+            writer.write(',');
+            writer.write(version);
+            writer.write(",maven,");
+            writer.write(component.replace(' ', '-').toLowerCase());
+            writer.write(',');
+            writer.write(version);
+            writer.write(",CVE-20");
+            writer.write(Integer.toString(10 + random.nextInt(9)));
+            writer.write('-');
+            writer.write(Integer.toString(row));
+            writer.write(',');
+            writeText(writer, random, 4 + random.nextInt(8));
+            writer.write(',');
+            writer.write(date);
+            writer.write(',');
+            writer.write(DATES[random.nextInt(DATES.length)]);
+            writer.write(',');
+            writer.write(score(random));
+            writer.write(',');
+            writer.write(score(random));
+            writer.write(',');
+            writer.write(score(random));
+            writer.write(',');
+            writer.write(SOURCES[random.nextInt(SOURCES.length)]);
+            writer.write(",http://hub.example.com/ui/vulnerabilities/id:");
+            writer.write(Integer.toString(row));
+            writer.write("/view:overview,");
+            writer.write(REMEDIATION_STATUSES[random.nextInt(REMEDIATION_STATUSES.length)]);
+            writer.write(',');
+            writer.write(date);
+            writer.write(',');
+            writer.write(date);
+            writer.write(',');
+            writeText(writer, random, 1 + random.nextInt(4));
+            writer.write(",https://nvd.nist.gov/vuln/detail/CVE-2017-");
+            writer.write(Integer.toString(row));
+            writer.write(',');
+            writer.write(SEVERITIES[random.nextInt(SEVERITIES.length)]);
+            writer.write(",2018-02-22 19:20:33.700,10.0.1,2018-06-30,9.1.2,2018-01-22\n");
+        }
+    }
+
+    private static void writeText(final Writer writer, final Random random, final int sentences) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < sentences; i++) {
+            writer.write(SENTENCE);
+            if (random.nextInt(10) == 0) {
+                writer.write('\n');
+            }
+        }
+        writer.write('"');
+    }
+
+    private static String score(final Random random) {
+        return random.nextInt(11) + "." + random.nextInt(10);
+    }
+}
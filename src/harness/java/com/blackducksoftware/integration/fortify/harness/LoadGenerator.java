@@ -0,0 +1,451 @@
+package com.blackducksoftware.integration.fortify.harness;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.blackducksoftware.integration.fortify.parser.BlackDuckIssueParser;
+import com.fortify.plugin.spi.ParserPlugin;
+
+/**
+ * Replays concurrent synthetic uploads against the plugin the way SSC imports them: parseScan followed by
+ * parseVulnerabilities on the same ScanData, every upload in a session of its own. Reproduces import throughput and
+ * latency on a developer machine without SSC. Parser settings are read from the blackduck.parser.* system properties
+ * as in SSC.
+ *
+ * <pre>
+ * gradlew loadTest -PloadTestArgs="--uploads=16 --concurrency=4 --rows=100000 --latency-micros=20" -Dblackduck.parser.parallelism=2
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final String USAGE = "Options:\n"
+            + "  --uploads=N         number of uploads, default 8\n"
+            + "  --concurrency=N     number of uploads imported at the same time, default 4\n"
+            + "  --rows=N            rows of the generated report, default 10000\n"
+            + "  --report=PATH       upload this report instead of a generated one\n"
+            + "  --input=file|memory upload read from a file or from memory, default file\n"
+            + "  --output=discard|memory|file\n"
+            + "                      what the SSC stand-in does with vulnerabilities, default discard\n"
+            + "  --output-directory=PATH\n"
+            + "                      directory of the vulnerability files of file output, default java.io.tmpdir/blackduck-load\n"
+            + "  --latency-micros=N  time SSC takes per vulnerability, default 0\n"
+            + "  --count-allocations count bytes allocated per vulnerability\n";
+
+    /**
+     * Where the plugin reads the upload from.
+     */
+    public enum Input {
+        /**
+         * Upload stored on disk, the plugin gets a FileInputStream.
+         */
+        FILE,
+        /**
+         * Upload held in memory, the plugin gets a ByteArrayInputStream.
+         */
+        MEMORY
+    }
+
+    private int uploads = 8;
+
+    private int concurrency = 4;
+
+    private int rows = 10000;
+
+    private Path report;
+
+    private Input input = Input.FILE;
+
+    private FakeVulnerabilityHandler.Output output = FakeVulnerabilityHandler.Output.DISCARD;
+
+    private Path outputDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "blackduck-load");
+
+    private long latencyNanos;
+
+    private boolean countAllocations;
+
+    public static void main(final String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(USAGE);
+            return;
+        }
+        final LoadGenerator generator = fromArgs(args);
+        final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+        parser.start();
+        try {
+            final Result result = generator.run(parser);
+            System.out.print(result);
+            if (result.getFailedUploads() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            parser.stop();
+        }
+    }
+
+    /**
+     * @param args
+     *            command line options, listed by --help
+     * @return generator configured by the options
+     * @throws IllegalArgumentException
+     *             if an option is unknown or its value is invalid
+     */
+    public static LoadGenerator fromArgs(final String... args) {
+        final LoadGenerator generator = new LoadGenerator();
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            final String name = separator < 0 ? arg : arg.substring(0, separator);
+            final String value = separator < 0 ? null : arg.substring(separator + 1);
+            switch (name) {
+            case "--uploads":
+                generator.setUploads(Integer.parseInt(required(name, value)));
+                break;
+            case "--concurrency":
+                generator.setConcurrency(Integer.parseInt(required(name, value)));
+                break;
+            case "--rows":
+                generator.setRows(Integer.parseInt(required(name, value)));
+                break;
+            case "--report":
+                generator.setReport(Paths.get(required(name, value)));
+                break;
+            case "--input":
+                generator.setInput(Input.valueOf(required(name, value).toUpperCase(Locale.ENGLISH)));
+                break;
+            case "--output":
+                generator.setOutput(FakeVulnerabilityHandler.Output.valueOf(required(name, value).toUpperCase(Locale.ENGLISH)));
+                break;
+            case "--output-directory":
+                generator.setOutputDirectory(Paths.get(required(name, value)));
+                break;
+            case "--latency-micros":
+                generator.setLatency(TimeUnit.MICROSECONDS.toNanos(Long.parseLong(required(name, value))));
+                break;
+            case "--count-allocations":
+                generator.setCountAllocations(value == null || Boolean.parseBoolean(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option " + arg + "\n" + USAGE);
+            }
+        }
+        return generator;
+    }
+
+    private static String required(final String name, final String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Option " + name + " needs a value\n" + USAGE);
+        }
+        return value;
+    }
+
+    public int getUploads() {
+        return uploads;
+    }
+
+    public void setUploads(final int uploads) {
+        if (uploads < 1) {
+            throw new IllegalArgumentException("Number of uploads must be at least 1, got " + uploads);
+        }
+        this.uploads = uploads;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1, got " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(final int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("Number of rows must not be negative, got " + rows);
+        }
+        this.rows = rows;
+    }
+
+    public Path getReport() {
+        return report;
+    }
+
+    /**
+     * @param report
+     *            report uploaded instead of a generated one, null to generate a report of {@link #getRows()} rows
+     */
+    public void setReport(final Path report) {
+        this.report = report;
+    }
+
+    public Input getInput() {
+        return input;
+    }
+
+    public void setInput(final Input input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input must not be null");
+        }
+        this.input = input;
+    }
+
+    public FakeVulnerabilityHandler.Output getOutput() {
+        return output;
+    }
+
+    public void setOutput(final FakeVulnerabilityHandler.Output output) {
+        if (output == null) {
+            throw new IllegalArgumentException("Output must not be null");
+        }
+        this.output = output;
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * @param outputDirectory
+     *            directory receiving a vulnerability file per upload when the output is a file
+     */
+    public void setOutputDirectory(final Path outputDirectory) {
+        if (outputDirectory == null) {
+            throw new IllegalArgumentException("Output directory must not be null");
+        }
+        this.outputDirectory = outputDirectory;
+    }
+
+    public long getLatency() {
+        return latencyNanos;
+    }
+
+    /**
+     * @param latencyNanos
+     *            time SSC takes for every vulnerability, 0 for none
+     */
+    public void setLatency(final long latencyNanos) {
+        if (latencyNanos < 0) {
+            throw new IllegalArgumentException("Latency must not be negative, got " + latencyNanos);
+        }
+        this.latencyNanos = latencyNanos;
+    }
+
+    public boolean isCountAllocations() {
+        return countAllocations;
+    }
+
+    public void setCountAllocations(final boolean countAllocations) {
+        this.countAllocations = countAllocations;
+    }
+
+    /**
+     * Imports all uploads and waits for them to finish. A failed upload is logged and counted, the others continue.
+     *
+     * @param plugin
+     *            started plugin
+     * @return throughput, latency and allocation of the imports
+     * @throws IOException
+     *             if the report cannot be generated or read
+     * @throws InterruptedException
+     *             if interrupted while waiting for the uploads
+     */
+    public Result run(final ParserPlugin<?> plugin) throws IOException, InterruptedException {
+        final Path reportFile = report != null ? report : HubReportGenerator.report(rows).toPath();
+        final byte[] content = input == Input.MEMORY ? Files.readAllBytes(reportFile) : null;
+        final long reportBytes = Files.size(reportFile);
+        if (output == FakeVulnerabilityHandler.Output.FILE) {
+            Files.createDirectories(outputDirectory);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        final List<Future<Upload>> futures = new ArrayList<>(uploads);
+        final long start = System.nanoTime();
+        try {
+            for (int i = 0; i < uploads; i++) {
+                final String sessionId = "upload-" + i;
+                final FakeScanData scanData = content != null ? FakeScanData.inMemory(sessionId, reportFile.getFileName().toString(), content)
+                        : FakeScanData.ofFile(sessionId, reportFile);
+                futures.add(executor.submit(() -> importUpload(plugin, scanData)));
+            }
+            final Result result = new Result(uploads, reportBytes);
+            for (final Future<Upload> future : futures) {
+                try {
+                    result.add(future.get());
+                } catch (final ExecutionException e) {
+                    LOG.error("Upload failed", e.getCause());
+                    result.failedUploads++;
+                }
+            }
+            result.totalNanos = System.nanoTime() - start;
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Upload importUpload(final ParserPlugin<?> plugin, final FakeScanData scanData) throws Exception {
+        final long start = System.nanoTime();
+        final RecordingScanBuilder scanBuilder = new RecordingScanBuilder();
+        plugin.parseScan(scanData, scanBuilder);
+        try (final FakeVulnerabilityHandler vulnerabilityHandler = newVulnerabilityHandler(scanData.getSessionId())) {
+            vulnerabilityHandler.setLatency(latencyNanos);
+            vulnerabilityHandler.setCountAllocations(countAllocations);
+            plugin.parseVulnerabilities(scanData, vulnerabilityHandler);
+            return new Upload(System.nanoTime() - start, vulnerabilityHandler.getCompleted(), vulnerabilityHandler.getAllocatedBytes());
+        }
+    }
+
+    private FakeVulnerabilityHandler newVulnerabilityHandler(final String sessionId) throws IOException {
+        switch (output) {
+        case MEMORY:
+            return FakeVulnerabilityHandler.inMemory();
+        case FILE:
+            return FakeVulnerabilityHandler.toFile(outputDirectory.resolve(sessionId + ".txt"));
+        default:
+            return FakeVulnerabilityHandler.discarding();
+        }
+    }
+
+    private static final class Upload {
+
+        private final long nanos;
+
+        private final long vulnerabilities;
+
+        private final long allocatedBytes;
+
+        private Upload(final long nanos, final long vulnerabilities, final long allocatedBytes) {
+            this.nanos = nanos;
+            this.vulnerabilities = vulnerabilities;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * Outcome of a load test. Upload latency is the time from parseScan to the end of parseVulnerabilities, including
+     * the wait for admission by the import scheduler.
+     */
+    public static final class Result {
+
+        private final int uploads;
+
+        private final long reportBytes;
+
+        private final long[] uploadNanos;
+
+        private int completedUploads;
+
+        private int failedUploads;
+
+        private long totalNanos;
+
+        private long vulnerabilities;
+
+        private long allocatedBytes;
+
+        private Result(final int uploads, final long reportBytes) {
+            this.uploads = uploads;
+            this.reportBytes = reportBytes;
+            this.uploadNanos = new long[uploads];
+        }
+
+        private void add(final Upload upload) {
+            uploadNanos[completedUploads++] = upload.nanos;
+            vulnerabilities += upload.vulnerabilities;
+            allocatedBytes += upload.allocatedBytes;
+        }
+
+        public int getUploads() {
+            return uploads;
+        }
+
+        public int getCompletedUploads() {
+            return completedUploads;
+        }
+
+        public int getFailedUploads() {
+            return failedUploads;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * @return vulnerabilities passed to the SSC stand-in by all completed uploads
+         */
+        public long getVulnerabilities() {
+            return vulnerabilities;
+        }
+
+        public double getUploadsPerSecond() {
+            return completedUploads / seconds();
+        }
+
+        public double getVulnerabilitiesPerSecond() {
+            return vulnerabilities / seconds();
+        }
+
+        public double getMegabytesPerSecond() {
+            return (double) reportBytes * completedUploads / (1024 * 1024) / seconds();
+        }
+
+        /**
+         * @param percentile
+         *            0 to 100
+         * @return upload latency at the percentile over the completed uploads, 0 if none completed
+         */
+        public long getUploadNanos(final double percentile) {
+            if (completedUploads == 0) {
+                return 0;
+            }
+            final long[] sorted = Arrays.copyOf(uploadNanos, completedUploads);
+            Arrays.sort(sorted);
+            final int index = (int) Math.ceil(percentile / 100 * completedUploads) - 1;
+            return sorted[Math.max(0, Math.min(completedUploads - 1, index))];
+        }
+
+        /**
+         * @return bytes allocated per vulnerability by the threads calling the SSC stand-in, 0 unless counted
+         */
+        public long getAllocatedBytesPerVulnerability() {
+            return vulnerabilities == 0 ? 0 : allocatedBytes / vulnerabilities;
+        }
+
+        private double seconds() {
+            return Math.max(totalNanos, 1) / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "Uploads:                %d completed, %d failed, %d bytes each%n"
+                    + "Total time:             %.1f ms%n"
+                    + "Throughput:             %.2f uploads/s, %.0f vulnerabilities/s, %.1f MB/s%n"
+                    + "Upload latency:         p50 %.1f ms, p95 %.1f ms, max %.1f ms%n"
+                    + "Vulnerabilities:        %d%n"
+                    + "Allocated per vuln.:    %d bytes%n",
+                    completedUploads, failedUploads, reportBytes, totalNanos / 1e6, getUploadsPerSecond(), getVulnerabilitiesPerSecond(),
+                    getMegabytesPerSecond(), getUploadNanos(50) / 1e6, getUploadNanos(95) / 1e6, getUploadNanos(100) / 1e6, vulnerabilities,
+                    getAllocatedBytesPerVulnerability());
+        }
+    }
+}
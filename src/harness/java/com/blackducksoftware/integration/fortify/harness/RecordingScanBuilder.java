@@ -0,0 +1,145 @@
+package com.blackducksoftware.integration.fortify.harness;
+
+import java.util.Date;
+
+import com.fortify.plugin.api.ScanBuilder;
+
+/**
+ * ScanBuilder keeping the scan the plugin builds in parseScan.
+ */
+public final class RecordingScanBuilder implements ScanBuilder {
+
+    private String guid;
+
+    private Date scanDate;
+
+    private String buildId;
+
+    private String scanLabel;
+
+    private String hostName;
+
+    private Integer elapsedTime;
+
+    private Integer numFiles;
+
+    private Integer executableLOC;
+
+    private Integer totalLOC;
+
+    private String engineVersion;
+
+    private boolean completed;
+
+    @Override
+    public ScanBuilder setGuid(final String guid) {
+        this.guid = guid;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setScanDate(final Date scanDate) {
+        this.scanDate = scanDate;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setBuildId(final String buildId) {
+        this.buildId = buildId;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setScanLabel(final String scanLabel) {
+        this.scanLabel = scanLabel;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setHostName(final String hostName) {
+        this.hostName = hostName;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setElapsedTime(final Integer elapsedTime) {
+        this.elapsedTime = elapsedTime;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setNumFiles(final Integer numFiles) {
+        this.numFiles = numFiles;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setExecutableLOC(final Integer executableLOC) {
+        this.executableLOC = executableLOC;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setTotalLOC(final Integer totalLOC) {
+        this.totalLOC = totalLOC;
+        return this;
+    }
+
+    @Override
+    public ScanBuilder setEngineVersion(final String engineVersion) {
+        this.engineVersion = engineVersion;
+        return this;
+    }
+
+    @Override
+    public void completeScan() {
+        completed = true;
+    }
+
+    public String getGuid() {
+        return guid;
+    }
+
+    public Date getScanDate() {
+        return scanDate;
+    }
+
+    public String getBuildId() {
+        return buildId;
+    }
+
+    public String getScanLabel() {
+        return scanLabel;
+    }
+
+    public String getHostName() {
+        return hostName;
+    }
+
+    public Integer getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public Integer getNumFiles() {
+        return numFiles;
+    }
+
+    public Integer getExecutableLOC() {
+        return executableLOC;
+    }
+
+    public Integer getTotalLOC() {
+        return totalLOC;
+    }
+
+    public String getEngineVersion() {
+        return engineVersion;
+    }
+
+    /**
+     * @return true once the plugin called completeScan
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -0,0 +1,63 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackducksoftware.integration.fortify.harness.HubReportGenerator;
+
+/**
+ * Whole report parsing from file to a no-op VulnerabilityHandler.
+ * Reports are generated once into java.io.tmpdir, the 10M rows report takes several GB of disk space.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvPipelineBenchmark {
+
+    @Param({ "10000", "1000000", "10000000" })
+    public int rows;
+
+    @Param({ "1" })
+    public int parallelism;
+
+    @Param({ "false", "true" })
+    public boolean byteTokenizer;
+
+    private final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+
+    private File report;
+
+    @Setup
+    public void setUp() throws Exception {
+        report = HubReportGenerator.report(rows);
+        settings.setParallelism(parallelism);
+        settings.setByteTokenizer(byteTokenizer);
+    }
+
+    @Benchmark
+    public long parseIssues() throws Exception {
+        final NoOpVulnerabilityHandler vulnerabilityHandler = new NoOpVulnerabilityHandler();
+        try (final InputStream inputStream = new BufferedInputStream(new FileInputStream(report))) {
+            new BlackDuckCSVParser(settings).parseIssues(inputStream, new BlackDuckCsvRowProcessor(vulnerabilityHandler));
+        }
+        return vulnerabilityHandler.getCompleted();
+    }
+}
@@ -0,0 +1,106 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackducksoftware.integration.fortify.harness.HubReportGenerator;
+import com.univocity.parsers.common.ParsingContext;
+import com.univocity.parsers.common.processor.AbstractRowProcessor;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+/**
+ * Per row costs of the CSV to vulnerability pipeline: vulnerability building, issue ID generation and date conversion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private final List<String[]> rows = new ArrayList<>();
+
+    private final List<BlackDuckIssue> issues = new ArrayList<>();
+
+    private final NoOpVulnerabilityHandler vulnerabilityHandler = new NoOpVulnerabilityHandler();
+
+    private final BlackDuckCsvRowProcessor rowProcessor = new BlackDuckCsvRowProcessor(vulnerabilityHandler);
+
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        final StringWriter report = new StringWriter();
+        HubReportGenerator.write(report, ROWS);
+        final CsvParserSettings parserSettings = new CsvParserSettings();
+        parserSettings.setHeaderExtractionEnabled(true);
+        final String[][] headers = new String[1][];
+        parserSettings.setRowProcessor(new AbstractRowProcessor() {
+            private BlackDuckIssueMapper issueMapper;
+
+            @Override
+            public void rowProcessed(final String[] row, final ParsingContext context) {
+                if (issueMapper == null) {
+                    headers[0] = context.headers();
+                    issueMapper = new BlackDuckIssueMapper(headers[0], null);
+                }
+                final BlackDuckIssue issue = new BlackDuckIssue();
+                issueMapper.map(row, issue);
+                rows.add(row);
+                issues.add(issue);
+            }
+        });
+        new CsvParser(parserSettings).parse(new StringReader(report.toString()));
+        // first row builds the attribute mapping of the header
+        rowProcessor.processStarted(null);
+        rowProcessor.rowProcessed(rows.get(0), new DetachedParsingContext(headers[0]));
+    }
+
+    private BlackDuckIssue nextIssue() {
+        next = (next + 1) % issues.size();
+        return issues.get(next);
+    }
+
+    @Benchmark
+    public long buildVulnerability() {
+        final BlackDuckIssue issue = nextIssue();
+        rowProcessor.buildVulnerability(rows.get(next), issue, vulnerabilityHandler);
+        return vulnerabilityHandler.getCompleted();
+    }
+
+    @Benchmark
+    public String getId() {
+        final BlackDuckIssue issue = nextIssue();
+        issue.resetId();
+        return issue.getId();
+    }
+
+    @Benchmark
+    public Date convertToDate() {
+        return BlackDuckUtils.convertToDate(nextIssue().getPublishedOn());
+    }
+
+    @Benchmark
+    public Date convertToDateTime() {
+        return BlackDuckUtils.convertToDateTime("'2018-02-22 19:20:33.700'");
+    }
+}
@@ -0,0 +1,167 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.spi.VulnerabilityAttribute.AttrType;
+
+/**
+ * Precompiled mapping of CSV columns to the custom attributes of a vulnerability.
+ * Built once per header layout from the columns of {@link BlackDuckVulnerabilityAttribute}: every mapped attribute
+ * gets its column index and the converter of its type. Rows are then converted and passed to the vulnerability
+ * builder in a loop over arrays. Attributes can be read from other columns by configuration, see
+ * {@link BlackDuckParserSettings#setAttributeColumns(Map)}. Not thread-safe, converted values of the current row are
+ * kept in the mapping, see {@link #copy()}.
+ */
+final class AttributeMapping {
+
+    /**
+     * Column of every attribute in the Hub report layout.
+     */
+    private static final Map<BlackDuckVulnerabilityAttribute, BlackDuckColumn> DEFAULT_COLUMNS = new EnumMap<>(BlackDuckVulnerabilityAttribute.class);
+
+    static {
+        for (final BlackDuckColumn column : BlackDuckColumn.values()) {
+            if (column.getAttribute() != null) {
+                DEFAULT_COLUMNS.put(column.getAttribute(), column);
+            }
+        }
+    }
+
+    private final BlackDuckVulnerabilityAttribute[] attributes;
+
+    private final AttrType[] types;
+
+    private final int[] columnIndexes;
+
+    /**
+     * Columns with few distinct values, deduplicated through the string pool.
+     */
+    private final boolean[] repeated;
+
+    private final Object[] values;
+
+    private AttributeMapping(final AttributeMapping mapping) {
+        this.attributes = mapping.attributes;
+        this.types = mapping.types;
+        this.columnIndexes = mapping.columnIndexes;
+        this.repeated = mapping.repeated;
+        this.values = new Object[attributes.length];
+    }
+
+    private AttributeMapping(final List<BlackDuckVulnerabilityAttribute> attributes, final List<Integer> columnIndexes,
+            final List<Boolean> repeated) {
+        final int size = attributes.size();
+        this.attributes = attributes.toArray(new BlackDuckVulnerabilityAttribute[size]);
+        this.types = new AttrType[size];
+        this.columnIndexes = new int[size];
+        this.repeated = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            this.types[i] = this.attributes[i].attributeType();
+            this.columnIndexes[i] = columnIndexes.get(i);
+            this.repeated[i] = repeated.get(i);
+        }
+        this.values = new Object[size];
+    }
+
+    /**
+     * Resolves columns of the attributes in the header. Attributes whose column is missing are not set.
+     *
+     * @param headers
+     *            CSV header
+     * @param attributeColumns
+     *            headers of columns replacing the default column of an attribute, keyed by attribute name
+     * @return mapping of the header layout
+     */
+    static AttributeMapping forHeaders(final String[] headers, final Map<String, String> attributeColumns) {
+        final List<BlackDuckVulnerabilityAttribute> attributes = new ArrayList<>();
+        final List<Integer> columnIndexes = new ArrayList<>();
+        final List<Boolean> repeated = new ArrayList<>();
+        for (final BlackDuckVulnerabilityAttribute attribute : BlackDuckVulnerabilityAttribute.values()) {
+            final BlackDuckColumn defaultColumn = DEFAULT_COLUMNS.get(attribute);
+            final String configuredHeader = attributeColumns.get(attribute.attributeName());
+            final String header = configuredHeader != null ? configuredHeader : (defaultColumn == null ? null : defaultColumn.getHeader());
+            final int index = header == null ? BlackDuckIssueMapper.NOT_FOUND : BlackDuckIssueMapper.indexOf(headers, header);
+            if (index != BlackDuckIssueMapper.NOT_FOUND) {
+                attributes.add(attribute);
+                columnIndexes.add(index);
+                repeated.add(configuredHeader == null && defaultColumn.isRepeated());
+            }
+        }
+        return new AttributeMapping(attributes, columnIndexes, repeated);
+    }
+
+    /**
+     * @return mapping of the same columns with its own converted values, for another parsing session
+     */
+    AttributeMapping copy() {
+        return new AttributeMapping(this);
+    }
+
+    /**
+     * @return indexes of the mapped columns
+     */
+    int[] getColumnIndexes() {
+        return columnIndexes.clone();
+    }
+
+    /**
+     * Converts values of the row to the types of their attributes.
+     *
+     * @param row
+     *            parsed CSV row
+     * @param stringPool
+     *            pool for values of repeated columns
+     * @return number of date values which could not be parsed
+     */
+    int convert(final String[] row, final StringPool stringPool) {
+        int dateParseFailures = 0;
+        for (int i = 0; i < columnIndexes.length; i++) {
+            final String value = columnIndexes[i] < row.length ? row[columnIndexes[i]] : null;
+            switch (types[i]) {
+            case DATE:
+                final Date date = BlackDuckUtils.convertToDate(value);
+                if (date == null && value != null && !value.trim().isEmpty()) {
+                    dateParseFailures++;
+                }
+                values[i] = date;
+                break;
+            case DECIMAL:
+                values[i] = CvssScore.decimalValue(value);
+                break;
+            default:
+                values[i] = repeated[i] ? stringPool.intern(value) : value;
+                break;
+            }
+        }
+        return dateParseFailures;
+    }
+
+    /**
+     * Sets values of the last converted row.
+     *
+     * @param vulnerabilityBuilder
+     *            builder of the vulnerability of the row
+     */
+    void apply(final StaticVulnerabilityBuilder vulnerabilityBuilder) {
+        for (int i = 0; i < attributes.length; i++) {
+            switch (types[i]) {
+            case DATE:
+                vulnerabilityBuilder.setDateCustomAttributeValue(attributes[i], (Date) values[i]);
+                break;
+            case DECIMAL:
+                vulnerabilityBuilder.setDecimalCustomAttributeValue(attributes[i], (BigDecimal) values[i]);
+                break;
+            default:
+                vulnerabilityBuilder.setStringCustomAttributeValue(attributes[i], (String) values[i]);
+                break;
+            }
+            values[i] = null;
+        }
+    }
+}
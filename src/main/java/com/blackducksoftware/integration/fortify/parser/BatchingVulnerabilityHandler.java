@@ -0,0 +1,73 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+
+/**
+ * VulnerabilityHandler recording vulnerabilities into a reusable batch and passing them to the SSC handler in bursts.
+ * Parsing and building run without interruption by per-call costs of the SSC handler like locking or persistence,
+ * and the SSC handler gets long runs of calls. Records keep their arrays between batches.
+ * The batch is passed on when it is full and by {@link #flush()}, which the owner must call when parsing ends.
+ * Not thread safe, every row processor has a batch of its own.
+ */
+class BatchingVulnerabilityHandler implements VulnerabilityHandler {
+
+    private final VulnerabilityHandler vulnerabilityHandler;
+
+    private final VulnerabilityRecord[] records;
+
+    /**
+     * Number of completed records waiting in the batch.
+     */
+    private int size;
+
+    /**
+     * @param vulnerabilityHandler
+     *            handler provided by SSC
+     * @param batchSize
+     *            number of vulnerabilities passed on at once
+     */
+    BatchingVulnerabilityHandler(final VulnerabilityHandler vulnerabilityHandler, final int batchSize) {
+        this.vulnerabilityHandler = vulnerabilityHandler;
+        this.records = new VulnerabilityRecord[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            records[i] = new VulnerabilityRecord(this::completed);
+        }
+    }
+
+    /**
+     * Starts recording a vulnerability. A previously started vulnerability which was not completed is discarded.
+     */
+    @Override
+    public StaticVulnerabilityBuilder startStaticVulnerability(final String id) {
+        final VulnerabilityRecord record = records[size];
+        record.start(id);
+        return record;
+    }
+
+    private void completed() {
+        size++;
+        if (size == records.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Passes the completed vulnerabilities to the SSC handler. The batch is emptied even if the SSC handler fails.
+     */
+    void flush() {
+        if (size == 0) {
+            return;
+        }
+        try {
+            for (int i = 0; i < size; i++) {
+                records[i].replay(vulnerabilityHandler);
+            }
+        } finally {
+            for (int i = 0; i < size; i++) {
+                records[i].clear();
+            }
+            size = 0;
+        }
+    }
+}
@@ -22,17 +22,20 @@
  */
 package com.blackducksoftware.integration.fortify.parser;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.Date;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fortify.plugin.api.ScanParsingException;
-import com.univocity.parsers.common.processor.BeanProcessor;
+import com.univocity.parsers.common.TextParsingException;
+import com.univocity.parsers.common.processor.RowProcessor;
+import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
 
 /**
@@ -45,6 +48,32 @@ public class BlackDuckCSVParser {
 
     private static final Logger LOG = LoggerFactory.getLogger(BlackDuckCSVParser.class);
 
+    /**
+     * Bytes of the file mapped at once when reading a local file.
+     */
+    private static final long MAPPED_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final BlackDuckParserSettings settings;
+
+    private PipelineStatistics pipelineStatistics;
+
+    /**
+     * Creates parser with default settings.
+     */
+    public BlackDuckCSVParser() {
+        this(new BlackDuckParserSettings());
+    }
+
+    /**
+     * Creates parser with provided settings.
+     *
+     * @param settings
+     *            parser tuning options
+     */
+    public BlackDuckCSVParser(final BlackDuckParserSettings settings) {
+        this.settings = settings;
+    }
+
     /**
      * Parse scan information from provided stream.
      *
@@ -74,48 +103,48 @@ public class BlackDuckCSVParser {
         if (inputStream == null) {
             throw new IllegalArgumentException("inputStream cannot be null");
         }
-        final BlackDuckScan blackDuckScan = new BlackDuckScan();
-        /*
-         * FIX ME!
-         * You must place some logic here that generates a scan date. This is very important thing since SSC uses this
-         * date to check if results located inside this field where uploaded before it not. It will help SSC to prevent
-         * processing of the same files twice.
-         * All parser plugins that SSC currently supports store the scan date inside the scan result file. You will need
-         * to
-         * figure out where to get this date from black duck scan results.
-         * This date also helps SSC to understand the status of issue - is it new, or is it reintroduced, or is it
-         * fixed.
-         * If there is not way to get this file from CSV file, scan date must be included in scan.info file. See the
-         * comment
-         * above for more details.
-         */
-        Date scanDate = null;
-        BufferedReader reader = null;
+        return buildScan(summarizeScan(inputStream));
+    }
 
+    /**
+     * Reads the provided stream once, computing the scan GUID, the scan date and the number of data rows.
+     *
+     * @param inputStream
+     *            stream that contains uploaded BlackDuck scan result file data.
+     * @return summary of the scan result file.
+     * @throws IOException
+     *             in case any errors
+     */
+    public BlackDuckScanSummary summarizeScan(final InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("inputStream cannot be null");
+        }
+        final ScanSummaryInputStream summaryStream = new ScanSummaryInputStream(inputStream);
         try {
-            reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-            String sCurrentLine;
-
-            int counter = 0;
-            while ((sCurrentLine = reader.readLine()) != null) {
-                if (counter == 0) {
-                    counter++;
-                    continue;
-                } else {
-                    final String[] lineArr = sCurrentLine.split(",");
-                    LOG.debug("Scan date from File::" + lineArr[lineArr.length - 1]);
-                    scanDate = BlackDuckUtils.convertToDateTime(lineArr[lineArr.length - 1]);
-                    LOG.debug("Scan date::" + scanDate);
-                    break;
-                }
-            }
-        } catch (final Exception e) {
-            e.printStackTrace();
-            LOG.error(e.getMessage(), e);
-            throw new IOException("Error while parsing the scan date");
+            summaryStream.drain();
+        } catch (final IOException e) {
+            throw new IOException("Unable to generate MD5 for stream!", e);
         }
-        blackDuckScan.setScanDate(new Date());
-        blackDuckScan.setGuid(BlackDuckUtils.getMD5ForStream(inputStream));
+        final BlackDuckScanSummary summary = summaryStream.getSummary();
+        LOG.debug("Scan date::" + summary.getScanDate() + ", rows::" + summary.getRowCount() + ", bytes::" + summary.getByteCount());
+        return summary;
+    }
+
+    /**
+     * Creates scan object from the summary of the scan result file.
+     *
+     * @param summary
+     *            summary obtained by {@link #summarizeScan(InputStream)} or collected while parsing issues.
+     * @return initialized BlackDuckScan object.
+     */
+    public BlackDuckScan buildScan(final BlackDuckScanSummary summary) {
+        /*
+         * SSC uses the scan date to check if results were uploaded before and to understand the status of issue - is it
+         * new, or is it reintroduced, or is it fixed. Scan date stored in the file is used when it can be parsed.
+         */
+        final BlackDuckScan blackDuckScan = new BlackDuckScan();
+        blackDuckScan.setScanDate(summary.getScanDate() == null ? new Date() : summary.getScanDate());
+        blackDuckScan.setGuid(summary.getGuid());
         blackDuckScan.setScanLabel(BlackDuckConstants.SCAN_LABEL);
         return blackDuckScan;
     }
@@ -125,28 +154,83 @@ public class BlackDuckCSVParser {
      *
      * @param inputStream
      *            stream that contains uploaded BlackDuck scan result file data.
-     * @param beanProcessor
-     *            BeanProcessor implementation that is responsible for fetching vulnerabilities from the
-     *            rows of the provided black duck result CSV file.
+     * @param rowProcessor
+     *            RowProcessor implementation (BlackDuckCsvRowProcessor or a BeanProcessor of BlackDuckIssue) that is
+     *            responsible for fetching vulnerabilities from the rows of the provided black duck result CSV file.
      * @throws ScanParsingException
      * @throws IOException
      *             If an I/O error occurs during CSV file processing.
      * @throws IllegalArgumentException
-     *             if inputStream and / or beanProcessor are null.
+     *             if inputStream and / or rowProcessor are null.
      */
-    public void parseIssues(final InputStream inputStream, final BeanProcessor<BlackDuckIssue> beanProcessor) throws ScanParsingException, IOException {
+    public void parseIssues(final InputStream inputStream, final RowProcessor rowProcessor) throws ScanParsingException, IOException {
         LOG.info("Parsing issues for Black Duck");
         if (inputStream == null) {
             throw new IllegalArgumentException("inputStream cannot be null");
         }
-        if (beanProcessor == null) {
-            throw new IllegalArgumentException("beanProcessor cannot be null");
+        if (rowProcessor == null) {
+            throw new IllegalArgumentException("rowProcessor cannot be null");
+        }
+        if (settings.getParallelism() > 1) {
+            new ParallelCsvParser(settings).parse(inputStream, rowProcessor);
+            return;
+        }
+        if (settings.isPipelined()) {
+            final PipelinedCsvParser pipelinedCsvParser = new PipelinedCsvParser(settings);
+            try {
+                pipelinedCsvParser.parse(inputStream, rowProcessor);
+            } finally {
+                pipelineStatistics = pipelinedCsvParser.getStatistics();
+                LOG.info("Pipeline stall times: " + pipelineStatistics);
+            }
+            return;
         }
-        final CsvParserSettings parserSettings = new CsvParserSettings();
-        parserSettings.setRowProcessor(beanProcessor);
+        if (settings.isByteTokenizer()) {
+            new ByteCsvParser(settings).parse(inputStream, rowProcessor);
+            return;
+        }
+        final CsvParserSettings parserSettings = settings.newCsvParserSettings();
+        parserSettings.setRowProcessor(rowProcessor);
         parserSettings.setHeaderExtractionEnabled(true);
-        try (final InputStreamCsvParser inputStreamCsvParser = new InputStreamCsvParser(parserSettings, inputStream)) {
+        try (final InputStreamCsvParser inputStreamCsvParser = new InputStreamCsvParser(parserSettings, inputStream, settings)) {
             inputStreamCsvParser.parse();
         }
     }
+
+    /**
+     * Parses issues of a local CSV file. The file is read through a memory map by the sequential parser, parallel,
+     * pipelined and byte level parsing read it as a stream.
+     *
+     * @param channel
+     *            channel of the uploaded BlackDuck scan result file, closed when done.
+     * @param rowProcessor
+     *            RowProcessor implementation
+     * @throws ScanParsingException
+     * @throws IOException
+     *             If an I/O error occurs during CSV file processing.
+     */
+    void parseIssues(final FileChannel channel, final RowProcessor rowProcessor) throws ScanParsingException, IOException {
+        if (settings.getParallelism() > 1 || settings.isPipelined() || settings.isByteTokenizer()) {
+            try (final InputStream inputStream = Channels.newInputStream(channel)) {
+                parseIssues(inputStream, rowProcessor);
+            }
+            return;
+        }
+        LOG.info("Parsing issues for Black Duck from memory mapped file");
+        final CsvParserSettings parserSettings = settings.newCsvParserSettings();
+        parserSettings.setRowProcessor(rowProcessor);
+        parserSettings.setHeaderExtractionEnabled(true);
+        try (final Reader reader = settings.boundColumns(new MappedFileReader(channel, MAPPED_WINDOW_SIZE))) {
+            new CsvParser(parserSettings).parse(ColumnSelection.selectColumns(parserSettings, reader, rowProcessor, settings));
+        } catch (final TextParsingException e) {
+            throw ParsingFailures.toScanParsingException(e);
+        }
+    }
+
+    /**
+     * @return stage stall times of the last pipelined parseIssues call, null if pipelined parsing was not used.
+     */
+    public PipelineStatistics getPipelineStatistics() {
+        return pipelineStatistics;
+    }
 }
@@ -0,0 +1,72 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+/**
+ * Columns of the Hub CSV report.
+ * Header names must match the @Parsed mappings of BlackDuckIssue.
+ */
+public enum BlackDuckColumn {
+    PROJECT_NAME("Project name", BlackDuckVulnerabilityAttribute.PROJECT_NAME, true),
+    PROJECT_VERSION("Project version", BlackDuckVulnerabilityAttribute.PROJECT_VERSION, true),
+    PROJECT_ID("Project id", null),
+    VERSION_ID("Version id", null),
+    CHANNEL_VERSION_ID("Channel version id", null),
+    COMPONENT_NAME("Component name", BlackDuckVulnerabilityAttribute.COMPONENT_NAME, true),
+    VERSION("Version", BlackDuckVulnerabilityAttribute.COMPONENT_VERSION, true),
+    CHANNEL_VERSION_ORIGIN("Channel version origin", BlackDuckVulnerabilityAttribute.CHANNEL_VERSION_ORIGIN),
+    CHANNEL_VERSION_ORIGIN_ID("Channel version origin id", BlackDuckVulnerabilityAttribute.CHANNEL_VERSION_ORIGIN_ID),
+    CHANNEL_VERSION_ORIGIN_NAME("Channel version origin name", BlackDuckVulnerabilityAttribute.CHANNEL_VERSION_ORIGIN_NAME),
+    VULNERABILITY_ID("Vulnerability id", BlackDuckVulnerabilityAttribute.VULNERABILITY_ID),
+    DESCRIPTION("Description", BlackDuckVulnerabilityAttribute.DESCRIPTION),
+    PUBLISHED_ON("Published on", BlackDuckVulnerabilityAttribute.PUBLISHED_ON),
+    UPDATED_ON("Updated on", BlackDuckVulnerabilityAttribute.UPDATED_ON),
+    BASE_SCORE("Base Score", BlackDuckVulnerabilityAttribute.BASE_SCORE),
+    EXPLOITABILITY("Exploitability", BlackDuckVulnerabilityAttribute.EXPLOITABILITY),
+    IMPACT("Impact", BlackDuckVulnerabilityAttribute.IMPACT),
+    VULNERABILITY_SOURCE("Vulnerability source", BlackDuckVulnerabilityAttribute.VULNERABILITY_SOURCE, true),
+    HUB_VULNERABILITY_URL("Hub Vulnerability URL", BlackDuckVulnerabilityAttribute.HUB_VULNERABILITY_URL),
+    REMEDIATION_STATUS("Remediation status", BlackDuckVulnerabilityAttribute.REMEDIATION_STATUS, true),
+    REMEDIATION_TARGET_DATE("Remediation target date", BlackDuckVulnerabilityAttribute.REMEDIATION_TARGET_DATE),
+    REMEDIATION_ACTUAL_DATE("Remediation actual date", BlackDuckVulnerabilityAttribute.REMEDIATION_ACTUAL_DATE),
+    REMEDIATION_COMMENT("Remediation comment", BlackDuckVulnerabilityAttribute.REMEDIATION_COMMENT),
+    URL("URL", BlackDuckVulnerabilityAttribute.URL),
+    SEVERITY("Severity", null, true),
+    SCAN_DATE("Scan date", null),
+    LATEST_VERSION("Latest Version", BlackDuckVulnerabilityAttribute.LATEST_VERSION),
+    LATEST_VERSION_RELEASED_ON("Latest Version Released On", BlackDuckVulnerabilityAttribute.LATEST_RELEASED_ON),
+    UPGRADE_VERSION("Upgrade Version", BlackDuckVulnerabilityAttribute.UPGRADE_VERSION),
+    UPGRADE_VERSION_RELEASED_ON("Upgrade Version Released On", BlackDuckVulnerabilityAttribute.UPGRADE_RELEASED_ON);
+
+    private final String header;
+
+    /**
+     * Custom attribute the column is imported as, null if it is not imported.
+     */
+    private final BlackDuckVulnerabilityAttribute attribute;
+
+    /**
+     * Column has few distinct values repeated over many rows.
+     */
+    private final boolean repeated;
+
+    BlackDuckColumn(final String header, final BlackDuckVulnerabilityAttribute attribute) {
+        this(header, attribute, false);
+    }
+
+    BlackDuckColumn(final String header, final BlackDuckVulnerabilityAttribute attribute, final boolean repeated) {
+        this.header = header;
+        this.attribute = attribute;
+        this.repeated = repeated;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public BlackDuckVulnerabilityAttribute getAttribute() {
+        return attribute;
+    }
+
+    public boolean isRepeated() {
+        return repeated;
+    }
+}
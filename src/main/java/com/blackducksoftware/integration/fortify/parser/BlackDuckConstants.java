@@ -38,7 +38,8 @@ public class BlackDuckConstants {
     public static final String ISSUE_CATEGORY = "3rd Party Component";
 
     /**
-     * The number of headers we expect in a legitimate CSV file.
+     * The number of headers of the Hub report layout the parser was written for. Reports are not rejected by header
+     * count, columns are resolved by name.
      */
     public static final Integer BLACKDUCK_HEADER_COUNT = 30;
 
@@ -1,5 +1,10 @@
 package com.blackducksoftware.integration.fortify.parser;
 
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,16 +13,97 @@ import com.fortify.plugin.api.VulnerabilityHandler;
 import com.univocity.parsers.common.ParsingContext;
 
 /**
- * Custom version of BeanProcessor to handle black duck scan results.
+ * RowProcessor to handle black duck scan results.
+ * Rows are mapped by column index into a single reused BlackDuckIssue instead of a new bean per row.
  */
-public class BlackDuckCsvRowProcessor extends BlackDuckBeanProcessor {
+public class BlackDuckCsvRowProcessor implements ForkableRowProcessor, SelectiveRowProcessor {
 
     private static Logger LOG = LoggerFactory.getLogger(BlackDuckCsvRowProcessor.class);
 
+    static final int STRING_POOL_SIZE = 4096;
+
+    private static final BigDecimal CRITICAL_BASE_SCORE = new BigDecimal("9.0");
+
+    private static final BigDecimal HIGH_BASE_SCORE = new BigDecimal("7.0");
+
+    private static final BigDecimal MEDIUM_BASE_SCORE = new BigDecimal("4.0");
+
     private final VulnerabilityHandler vulnerabilityHandler;
 
+    /**
+     * Batch of the vulnerabilities not yet passed to the handler, null when every vulnerability is passed on while its
+     * row is processed.
+     */
+    private final BatchingVulnerabilityHandler batch;
+
+    private final BlackDuckParserSettings settings;
+
+    private final ParserMetricsRegistry metricsRegistry;
+
+    /**
+     * Skipped rows of the fault tolerant import shared with the forks, null when a bad row aborts the import.
+     */
+    private final RowQuarantine quarantine;
+
+    /**
+     * Issue IDs passed on by the import, shared with the forks, null when duplicates are not detected.
+     */
+    private final DuplicateIdSet issueIds;
+
+    /**
+     * Clock is only read when metrics are collected.
+     */
+    private final boolean timed;
+
+    /**
+     * Rows per timed row, 0 if the stages of rows are not timed.
+     */
+    private final int timingSampleInterval;
+
+    /**
+     * Rows left until the next timed row.
+     */
+    private int rowsUntilSample;
+
+    /**
+     * Stages of the current row are timed, true for every {@link #timingSampleInterval}th row.
+     */
+    private boolean sampled;
+
+    /**
+     * End of the previous row, the time until the next row is spent by the CSV parser. Only read before a timed row.
+     */
+    private long lastRowEnd;
+
+    /**
+     * Date conversion time of the last built vulnerability, not part of the handler time.
+     */
+    private long dateConversionNanos;
+
+    private final BlackDuckIssue blackDuckIssue = new BlackDuckIssue();
+
+    private BlackDuckIssueMapper issueMapper;
+
+    private AttributeMapping attributeMapping;
+
+    /**
+     * Deduplicates repeated column values and composed file names within one parsing session.
+     */
+    private StringPool stringPool = new StringPool(STRING_POOL_SIZE);
+
     private int rowsProcessed;
 
+    /**
+     * Values per row of the header layout.
+     */
+    private int headerCount;
+
+    /**
+     * True once the vulnerability of the current row was passed to SSC, a later failure cannot be undone by skipping
+     * the row.
+     */
+    private boolean vulnerabilityStarted;
+
     /**
      * Constructor.
      *
@@ -26,8 +112,79 @@ public class BlackDuckCsvRowProcessor extends BlackDuckBeanProcessor {
      *            vulnerabilities from parser to SSC.
      */
     public BlackDuckCsvRowProcessor(final VulnerabilityHandler vulnerabilityHandler) {
-        super();
+        this(vulnerabilityHandler, new BlackDuckParserSettings(), null, 0);
+    }
+
+    /**
+     * Constructor of the plugin processor.
+     *
+     * @param vulnerabilityHandler
+     *            VulnerabilityHandler implementation
+     * @param settings
+     *            attribute columns and the metrics registry receiving timings and counts of the processed rows
+     * @param scanId
+     *            upload session ID naming the quarantine side file, null if SSC does not provide one
+     * @param expectedRows
+     *            number of rows the duplicate detection is sized for, 0 if unknown
+     */
+    BlackDuckCsvRowProcessor(final VulnerabilityHandler vulnerabilityHandler, final BlackDuckParserSettings settings, final String scanId,
+            final long expectedRows) {
+        this(vulnerabilityHandler, settings, settings.isFaultTolerant() ? new RowQuarantine(settings, scanId) : null,
+                settings.getDuplicatePolicy() == DuplicatePolicy.OFF ? null : new DuplicateIdSet(expectedRows));
+    }
+
+    private BlackDuckCsvRowProcessor(final VulnerabilityHandler vulnerabilityHandler, final BlackDuckParserSettings settings,
+            final RowQuarantine quarantine, final DuplicateIdSet issueIds) {
         this.vulnerabilityHandler = vulnerabilityHandler;
+        this.settings = settings;
+        this.metricsRegistry = settings.getMetricsRegistry();
+        this.timed = metricsRegistry != ParserMetricsRegistry.NO_OP;
+        this.timingSampleInterval = timed ? settings.getTimingSampleInterval() : 0;
+        this.quarantine = quarantine;
+        this.issueIds = issueIds;
+        this.batch = settings.getEmissionBatchSize() > 1
+                ? new BatchingVulnerabilityHandler(vulnerabilityHandler, settings.getEmissionBatchSize())
+                : null;
+    }
+
+    /**
+     * Creates processor passing vulnerabilities to the same handler, used to process report parts concurrently.
+     *
+     * @return new processor
+     */
+    @Override
+    public BlackDuckCsvRowProcessor fork() {
+        return new BlackDuckCsvRowProcessor(vulnerabilityHandler, settings, quarantine, issueIds);
+    }
+
+    /**
+     * @return rows skipped by the fault tolerant import, null if the import is not fault tolerant
+     */
+    RowQuarantine getQuarantine() {
+        return quarantine;
+    }
+
+    /**
+     * @return issue IDs passed on by the import, null if duplicates are not detected
+     */
+    DuplicateIdSet getIssueIds() {
+        return issueIds;
+    }
+
+    /**
+     * Columns mapped to vulnerability attributes and the issue ID.
+     * All columns are read when quarantined rows are written to a side file.
+     *
+     * @param headers
+     *            CSV header
+     * @return indexes of the read columns
+     */
+    @Override
+    public int[] selectedIndexes(final String[] headers) {
+        if (quarantine != null && quarantine.getSideFile() != null) {
+            return IntStream.range(0, headers.length).toArray();
+        }
+        return HeaderSchema.resolve(headers, settings.getAttributeColumns()).getSelectedIndexes();
     }
 
     /**
@@ -38,102 +195,232 @@ public class BlackDuckCsvRowProcessor extends BlackDuckBeanProcessor {
      */
     @Override
     public void processStarted(final ParsingContext context) {
-        super.processStarted(context);
         rowsProcessed = 0;
+        issueMapper = null;
+        attributeMapping = null;
+        stringPool = new StringPool(STRING_POOL_SIZE);
+        sampled = timingSampleInterval > 0;
+        rowsUntilSample = timingSampleInterval;
+        lastRowEnd = sampled ? System.nanoTime() : 0;
     }
 
     /**
+     * Method is called by framework for every parsed row of the scan file.
      *
-     * @param blackDuckIssue
+     * @param row
+     *            values of the parsed row
      * @param context
+     *            com.univocity.parsers.common.ParsingContext instanse
      */
     @Override
-    public void beanProcessed(final BlackDuckIssue blackDuckIssue, final ParsingContext context) {
-        if (rowsProcessed == 0) {
-            validateHeaders(context.headers());
+    public void rowProcessed(final String[] row, final ParsingContext context) {
+        final long rowStart = sampled ? System.nanoTime() : 0;
+        if (sampled && lastRowEnd != 0) {
+            metricsRegistry.recordTime(ParserTimer.TOKENIZE, rowStart - lastRowEnd);
+        }
+        if (issueMapper == null) {
+            final HeaderSchema schema = resolveSchema(context.headers());
+            attributeMapping = schema.newAttributeMapping();
+            issueMapper = new BlackDuckIssueMapper(schema, stringPool);
+            headerCount = schema.getHeaders().length;
+        }
+        if (quarantine == null) {
+            importRow(row, rowStart);
+        } else {
+            importOrQuarantineRow(row, rowStart, context);
+        }
+    }
+
+    /**
+     * Fault tolerant import of the row. Rows with a wrong number of values and rows failing before their
+     * vulnerability was started are quarantined, the import goes on until the error budget is exceeded.
+     */
+    private void importOrQuarantineRow(final String[] row, final long rowStart, final ParsingContext context) {
+        final String reason;
+        if (row.length != headerCount) {
+            reason = "Expected " + headerCount + " values, found " + row.length;
+        } else {
+            vulnerabilityStarted = false;
+            try {
+                importRow(row, rowStart);
+                quarantine.rowImported();
+                return;
+            } catch (final RuntimeException e) {
+                if (vulnerabilityStarted) {
+                    throw e;
+                }
+                reason = e.toString();
+            }
         }
-        buildVulnerability(blackDuckIssue, vulnerabilityHandler);
+        metricsRegistry.increment(ParserCounter.QUARANTINED_ROWS, 1);
+        if (!quarantine.add(context.currentRecord(), context.currentLine(), reason, row)) {
+            LOG.error("Error budget exceeded: " + quarantine.getQuarantinedRows() + " rows quarantined, "
+                    + quarantine.getImportedRows() + " rows imported");
+            throw new BlackDuckParsingException("Error budget of " + settings.getErrorBudget() + " exceeded, "
+                    + quarantine.getQuarantinedRows() + " rows quarantined");
+        }
+        endRow(sampled ? System.nanoTime() : 0);
+    }
+
+    private void importRow(final String[] row, final long rowStart) {
+        issueMapper.map(row, blackDuckIssue);
+        long handlerStart = 0;
+        if (sampled) {
+            final long mapEnd = System.nanoTime();
+            metricsRegistry.recordTime(ParserTimer.MAP, mapEnd - rowStart);
+            blackDuckIssue.getId();
+            handlerStart = System.nanoTime();
+            metricsRegistry.recordTime(ParserTimer.ISSUE_ID, handlerStart - mapEnd);
+        }
+        if (issueIds != null && !issueIds.add(blackDuckIssue.getIdMostSignificantBits(), blackDuckIssue.getIdLeastSignificantBits())) {
+            // the first row of an ID wins
+            metricsRegistry.increment(ParserCounter.DUPLICATE_ROWS, 1);
+            endRow(sampled ? System.nanoTime() : 0);
+            return;
+        }
+        dateConversionNanos = 0;
+        final VulnerabilityHandler handler = batch == null ? vulnerabilityHandler : batch;
+        buildVulnerability(row, blackDuckIssue, handler);
         rowsProcessed++;
+        metricsRegistry.increment(ParserCounter.ROWS, 1);
+        long rowEnd = 0;
+        if (sampled) {
+            rowEnd = System.nanoTime();
+            metricsRegistry.recordTime(ParserTimer.HANDLER, rowEnd - handlerStart - dateConversionNanos);
+        }
+        endRow(rowEnd);
     }
 
-    private void validateHeaders(final String[] headers) {
+    /**
+     * Decides whether the next row is timed, its tokenize time starts at the end of this row.
+     *
+     * @param rowEnd
+     *            end of this row if it was timed, 0 otherwise
+     */
+    private void endRow(final long rowEnd) {
+        if (timingSampleInterval == 0) {
+            return;
+        }
+        sampled = --rowsUntilSample == 0;
+        if (sampled) {
+            rowsUntilSample = timingSampleInterval;
+            lastRowEnd = rowEnd != 0 ? rowEnd : System.nanoTime();
+        }
+    }
+
+    /**
+     * Resolves columns by header name. Additional and reordered columns are accepted, the columns of the issue ID are
+     * required.
+     */
+    private HeaderSchema resolveSchema(final String[] headers) {
         if (headers == null) {
+            metricsRegistry.increment(ParserCounter.HEADER_VALIDATION_FAILURES, 1);
             LOG.error("Empty headers");
             throw new BlackDuckParsingException(BlackDuckConstants.BLACKDUCK_INVALID_CSV);
         }
-        if (headers.length != BlackDuckConstants.BLACKDUCK_HEADER_COUNT) {
-            LOG.error("Header count mismatch, header count: " + headers.length);
+        final HeaderSchema schema = HeaderSchema.resolve(headers, settings.getAttributeColumns());
+        if (!schema.getMissingRequiredColumns().isEmpty()) {
+            metricsRegistry.increment(ParserCounter.HEADER_VALIDATION_FAILURES, 1);
+            LOG.error("Required columns missing: " + schema.getMissingRequiredColumns().stream()
+                    .map(BlackDuckColumn::getHeader)
+                    .collect(Collectors.joining(", ")));
             throw new BlackDuckParsingException(BlackDuckConstants.BLACKDUCK_INVALID_CSV);
         }
+        return schema;
     }
 
-    private void buildVulnerability(final BlackDuckIssue blackDuckIssue, final VulnerabilityHandler vulnerabilityHandler) {
+    /**
+     * Starts the vulnerability and sets its standard attributes.
+     */
+    private StaticVulnerabilityBuilder startVulnerability(final BlackDuckIssue blackDuckIssue, final VulnerabilityHandler vulnerabilityHandler) {
         // Start building new vulnerability and obtain builder object
         final StaticVulnerabilityBuilder vulnerabilityBuilder = vulnerabilityHandler.startStaticVulnerability(blackDuckIssue.getId());
+        vulnerabilityStarted = true;
 
         // Standard attributes values
         vulnerabilityBuilder.setAnalyzer(BlackDuckConstants.PENTEST_ANALYZER_TYPE);
         vulnerabilityBuilder.setCategory(BlackDuckConstants.ISSUE_CATEGORY);
         vulnerabilityBuilder.setSubCategory("");
-        vulnerabilityBuilder.setFileName(blackDuckIssue.getComponentName() + ":" + blackDuckIssue.getVersion());
-        vulnerabilityBuilder.setConfidence((blackDuckIssue.getBaseScore() == null) ? 0 : blackDuckIssue.getBaseScore().floatValue());
-        switch (blackDuckIssue.getSeverity()) {
-        case "HIGH":
-            vulnerabilityBuilder.setPriority(StaticVulnerabilityBuilder.Priority.High);
-            break;
-        case "MEDIUM":
-            vulnerabilityBuilder.setPriority(StaticVulnerabilityBuilder.Priority.Medium);
-            break;
-        case "LOW":
-            vulnerabilityBuilder.setPriority(StaticVulnerabilityBuilder.Priority.Low);
-            break;
-        default:
-            vulnerabilityBuilder.setPriority(StaticVulnerabilityBuilder.Priority.Critical);
-            break;
-        }
+        vulnerabilityBuilder.setFileName(stringPool.intern(blackDuckIssue.getComponentName(), ':', blackDuckIssue.getVersion()));
+        vulnerabilityBuilder.setConfidence(CvssScore.floatValue(blackDuckIssue.getBaseScore()));
+        vulnerabilityBuilder.setPriority(priority(blackDuckIssue.getSeverity(), blackDuckIssue.getBaseScore()));
         vulnerabilityBuilder.setLikelihood(BlackDuckConstants.HIGH_LIKELIHOOD);
         vulnerabilityBuilder.setAccuracy(BlackDuckConstants.HIGH_ACCURACY);
         vulnerabilityBuilder.setEngineType(BlackDuckConstants.BLACKDUCK_ENGINE_TYPE);
-        vulnerabilityBuilder.setImpact((blackDuckIssue.getImpact() == null) ? 0 : blackDuckIssue.getImpact().floatValue());
-        vulnerabilityBuilder.setSeverity((blackDuckIssue.getExploitability() == null) ? 0 : blackDuckIssue.getExploitability().floatValue());
+        vulnerabilityBuilder.setImpact(CvssScore.floatValue(blackDuckIssue.getImpact()));
+        vulnerabilityBuilder.setSeverity(CvssScore.floatValue(blackDuckIssue.getExploitability()));
+        return vulnerabilityBuilder;
+    }
+
+    /**
+     * Builds the vulnerability with all attributes. Custom attributes are converted from the row through the
+     * attribute mapping of the header layout.
+     */
+    void buildVulnerability(final String[] row, final BlackDuckIssue blackDuckIssue, final VulnerabilityHandler vulnerabilityHandler) {
+        final long conversionStart = sampled ? System.nanoTime() : 0;
+        final int dateParseFailures = attributeMapping.convert(row, stringPool);
+        if (dateParseFailures > 0) {
+            metricsRegistry.increment(ParserCounter.DATE_PARSE_FAILURES, dateParseFailures);
+        }
+        if (sampled) {
+            dateConversionNanos = System.nanoTime() - conversionStart;
+            metricsRegistry.recordTime(ParserTimer.DATE_CONVERSION, dateConversionNanos);
+        }
+
+        final StaticVulnerabilityBuilder vulnerabilityBuilder = startVulnerability(blackDuckIssue, vulnerabilityHandler);
         // Blackduck specific attributes values
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.PROJECT_NAME, blackDuckIssue.getProjectName());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.PROJECT_VERSION, blackDuckIssue.getProjectVersion());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.CHANNEL_VERSION_ORIGIN, blackDuckIssue.getChannelVersionOrigin());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.CHANNEL_VERSION_ORIGIN_ID,
-                blackDuckIssue.getChannelVersionOriginId());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.CHANNEL_VERSION_ORIGIN_NAME,
-                blackDuckIssue.getChannelVersionOriginName());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.VULNERABILITY_ID, blackDuckIssue.getVulnerabilityId());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.DESCRIPTION, blackDuckIssue.getDescription());
-        vulnerabilityBuilder.setDateCustomAttributeValue(BlackDuckVulnerabilityAttribute.PUBLISHED_ON,
-                BlackDuckUtils.convertToDate(blackDuckIssue.getPublishedOn()));
-        vulnerabilityBuilder.setDateCustomAttributeValue(BlackDuckVulnerabilityAttribute.UPDATED_ON,
-                BlackDuckUtils.convertToDate(blackDuckIssue.getUpdatedOn()));
-        vulnerabilityBuilder.setDecimalCustomAttributeValue(BlackDuckVulnerabilityAttribute.BASE_SCORE, blackDuckIssue.getBaseScore());
-        vulnerabilityBuilder.setDecimalCustomAttributeValue(BlackDuckVulnerabilityAttribute.EXPLOITABILITY, blackDuckIssue.getExploitability());
-        vulnerabilityBuilder.setDecimalCustomAttributeValue(BlackDuckVulnerabilityAttribute.IMPACT, blackDuckIssue.getImpact());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.VULNERABILITY_SOURCE, blackDuckIssue.getVulnerabilitySource());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.HUB_VULNERABILITY_URL, blackDuckIssue.getHubVulnerabilityUrl());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.REMEDIATION_STATUS, blackDuckIssue.getRemediationStatus());
-        vulnerabilityBuilder.setDateCustomAttributeValue(BlackDuckVulnerabilityAttribute.REMEDIATION_TARGET_DATE,
-                BlackDuckUtils.convertToDate(blackDuckIssue.getRemediationTargetDate()));
-        vulnerabilityBuilder.setDateCustomAttributeValue(BlackDuckVulnerabilityAttribute.REMEDIATION_ACTUAL_DATE,
-                BlackDuckUtils.convertToDate(blackDuckIssue.getRemediationActualDate()));
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.REMEDIATION_COMMENT, blackDuckIssue.getRemediationComment());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.URL, blackDuckIssue.getURL());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.COMPONENT_NAME, blackDuckIssue.getComponentName());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.COMPONENT_VERSION, blackDuckIssue.getVersion());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.UPGRADE_VERSION, blackDuckIssue.getUpgradeVersion());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.UPGRADE_RELEASED_ON, blackDuckIssue.getUpgradeVersionReleasedOn());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.LATEST_VERSION, blackDuckIssue.getLatestVersion());
-        vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.LATEST_RELEASED_ON, blackDuckIssue.getLatestVersionReleasedOn());
+        attributeMapping.apply(vulnerabilityBuilder);
+        if (blackDuckIssue.getTruncatedColumns() != null) {
+            vulnerabilityBuilder.setStringCustomAttributeValue(BlackDuckVulnerabilityAttribute.TRUNCATED_COLUMNS, blackDuckIssue.getTruncatedColumns());
+        }
         vulnerabilityBuilder.completeVulnerability();
     }
 
+    /**
+     * Priority of the Hub severity. Unknown or missing severities are derived from the CVSS base score, never
+     * escalated to Critical.
+     */
+    private static StaticVulnerabilityBuilder.Priority priority(final String severity, final BigDecimal baseScore) {
+        if (severity != null) {
+            switch (severity.trim().toUpperCase(Locale.ENGLISH)) {
+            case "CRITICAL":
+                return StaticVulnerabilityBuilder.Priority.Critical;
+            case "HIGH":
+                return StaticVulnerabilityBuilder.Priority.High;
+            case "MEDIUM":
+                return StaticVulnerabilityBuilder.Priority.Medium;
+            case "LOW":
+                return StaticVulnerabilityBuilder.Priority.Low;
+            default:
+                break;
+            }
+        }
+        if (baseScore == null) {
+            return StaticVulnerabilityBuilder.Priority.Medium;
+        }
+        // CVSS v3 qualitative severity rating scale
+        if (baseScore.compareTo(CRITICAL_BASE_SCORE) >= 0) {
+            return StaticVulnerabilityBuilder.Priority.Critical;
+        }
+        if (baseScore.compareTo(HIGH_BASE_SCORE) >= 0) {
+            return StaticVulnerabilityBuilder.Priority.High;
+        }
+        if (baseScore.compareTo(MEDIUM_BASE_SCORE) >= 0) {
+            return StaticVulnerabilityBuilder.Priority.Medium;
+        }
+        return StaticVulnerabilityBuilder.Priority.Low;
+    }
+
     @Override
     public void processEnded(final ParsingContext context) {
-        super.processEnded(context);
+        issueMapper = null;
+        if (batch != null) {
+            final long flushStart = timed ? System.nanoTime() : 0;
+            batch.flush();
+            if (timed) {
+                metricsRegistry.recordTime(ParserTimer.HANDLER, System.nanoTime() - flushStart);
+            }
+        }
     }
 
     private static class BlackDuckParsingException extends RuntimeException {
@@ -0,0 +1,187 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts Hub report date strings to dates.
+ * Reports contain few distinct dates repeated over many rows, so conversion results are cached by date string,
+ * including failures: a malformed value is reported once instead of once per row. Caches are cleared when they reach
+ * their size limit.
+ */
+final class BlackDuckDateConverter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlackDuckDateConverter.class);
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * Cached value of strings that cannot be parsed.
+     */
+    private static final Long INVALID = Long.MIN_VALUE;
+
+    private final ZoneId zoneId;
+
+    private final int maxCacheSize;
+
+    private final ConcurrentMap<String, Long> dates = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Long> dateTimes = new ConcurrentHashMap<>();
+
+    private final LongAdder reportedFailures = new LongAdder();
+
+    BlackDuckDateConverter(final ZoneId zoneId, final int maxCacheSize) {
+        this.zoneId = zoneId;
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * @param value
+     *            date in yyyy-MM-dd format
+     * @return start of the day in converter time zone, null for empty or invalid values
+     */
+    Date toDate(final String value) {
+        final String trimmedDate = trim(value);
+        if (trimmedDate == null) {
+            return null;
+        }
+        Long millis = dates.get(trimmedDate);
+        if (millis == null) {
+            millis = parseDate(trimmedDate);
+            cache(dates, trimmedDate, millis);
+        }
+        return toDate(millis);
+    }
+
+    /**
+     * @param value
+     *            date and time in yyyy-MM-dd HH:mm:ss.SSS format, enclosed in double quotes if the value was not read by
+     *            a CSV parser
+     * @return date in converter time zone, null for empty or invalid values
+     */
+    Date toDateTime(final String value) {
+        final String trimmedDate = trim(value);
+        if (trimmedDate == null) {
+            return null;
+        }
+        Long millis = dateTimes.get(trimmedDate);
+        if (millis == null) {
+            millis = parseDateTime(trimmedDate);
+            cache(dateTimes, trimmedDate, millis);
+        }
+        return toDate(millis);
+    }
+
+    private Long parseDate(final String trimmedDate) {
+        try {
+            LocalDate localDate = isIsoDate(trimmedDate) ? toLocalDate(trimmedDate) : null;
+            if (localDate == null) {
+                localDate = LocalDate.parse(trimmedDate, DATE_FORMATTER);
+            }
+            return localDate.atStartOfDay(zoneId).toInstant().toEpochMilli();
+        } catch (final Exception e) {
+            logFailure(trimmedDate, "yyyy-MM-dd", e);
+            return INVALID;
+        }
+    }
+
+    private Long parseDateTime(final String trimmedDate) {
+        try {
+            final LocalDateTime localDateTime = LocalDateTime.parse(unquote(trimmedDate), DATE_TIME_FORMATTER);
+            return localDateTime.atZone(zoneId).toInstant().toEpochMilli();
+        } catch (final Exception e) {
+            logFailure(trimmedDate, "yyyy-MM-dd HH:mm:ss.SSS", e);
+            return INVALID;
+        }
+    }
+
+    private void cache(final ConcurrentMap<String, Long> cache, final String key, final Long millis) {
+        if (cache.size() >= maxCacheSize) {
+            cache.clear();
+        }
+        cache.put(key, millis);
+    }
+
+    private static Date toDate(final Long millis) {
+        // Date is mutable, never share instances
+        return INVALID.equals(millis) ? null : new Date(millis);
+    }
+
+    private static String trim(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String trimmedDate = value.trim();
+        return trimmedDate.isEmpty() ? null : trimmedDate;
+    }
+
+    private static String unquote(final String value) {
+        final int length = value.length();
+        return length > 1 && value.charAt(0) == '"' && value.charAt(length - 1) == '"' ? value.substring(1, length - 1) : value;
+    }
+
+    /**
+     * Fixed width yyyy-MM-dd check, avoids the general formatter for the usual Hub date layout.
+     */
+    private static boolean isIsoDate(final String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            if (i != 4 && i != 7 && (value.charAt(i) < '0' || value.charAt(i) > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return date of the fixed width value, null if the formatter has to resolve it (like day 31 of a shorter month
+     *         or year-of-era 0)
+     */
+    private static LocalDate toLocalDate(final String value) {
+        final int year = digits(value, 0, 4);
+        if (year == 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, digits(value, 5, 7), digits(value, 8, 10));
+        } catch (final DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(final String value, final int start, final int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    /**
+     * @return number of malformed values reported, a value is reported again once evicted from the cache
+     */
+    long getReportedFailures() {
+        return reportedFailures.sum();
+    }
+
+    private void logFailure(final String trimmedDate, final String format, final Exception e) {
+        reportedFailures.increment();
+        LOG.error(String.format("Date string %s cannot be parsed to date and value will be ignored. Please make sure date format is %s", trimmedDate,
+                format));
+        LOG.debug("Date parsing failure", e);
+    }
+}
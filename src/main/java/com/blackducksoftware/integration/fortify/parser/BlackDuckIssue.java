@@ -23,7 +23,6 @@
 package com.blackducksoftware.integration.fortify.parser;
 
 import java.math.BigDecimal;
-import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +44,13 @@ public class BlackDuckIssue {
      */
     private String issueId;
 
+    /**
+     * Bits of the issue ID, valid once the ID is computed.
+     */
+    private long idMostSignificantBits;
+
+    private long idLeastSignificantBits;
+
     @Parsed(field = "Project name")
     private String projectName;
 
@@ -135,6 +141,11 @@ public class BlackDuckIssue {
     @Parsed(field = "Latest Version Released On")
     private String latestVersionReleasedOn;
 
+    /**
+     * Headers of the columns cut by the parser, separated by comma. Null if all values were imported completely.
+     */
+    private String truncatedColumns;
+
     /**
      * Returns the unique ID of this particular issue.
      * Using an internal id plus the supplied name via the setId()
@@ -144,16 +155,42 @@ public class BlackDuckIssue {
      */
     public String getId() {
         if (issueId == null) {
-            final String uuidData = String.format("%s:%s:%s:%s", BlackDuckUtils.cleanName(componentName), BlackDuckUtils.cleanName(version),
-                    BlackDuckUtils.cleanName(channelVersionOriginId), vulnerabilityId);
-            issueId = UUID.nameUUIDFromBytes(uuidData.getBytes()).toString();
-            LOG.debug("Component name~" + BlackDuckUtils.cleanName(componentName) + "version~" + BlackDuckUtils.cleanName(version)
-                    + ", channel version origin id~" + BlackDuckUtils.cleanName(channelVersionOriginId) + ", vulnerabilityId~" + vulnerabilityId
-                    + ", issueId~" + issueId);
+            final IssueIdGenerator generator = IssueIdGenerator.forCurrentThread();
+            issueId = generator.generate(componentName, version, channelVersionOriginId, vulnerabilityId);
+            idMostSignificantBits = generator.getMostSignificantBits();
+            idLeastSignificantBits = generator.getLeastSignificantBits();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Component name~" + BlackDuckUtils.cleanName(componentName) + "version~" + BlackDuckUtils.cleanName(version)
+                        + ", channel version origin id~" + BlackDuckUtils.cleanName(channelVersionOriginId) + ", vulnerabilityId~" + vulnerabilityId
+                        + ", issueId~" + issueId);
+            }
         }
         return issueId;
     }
 
+    /**
+     * Forgets the computed issue ID, used when the object is reused for another row.
+     */
+    void resetId() {
+        issueId = null;
+    }
+
+    /**
+     * @return most significant 64 bits of the issue ID as UUID
+     */
+    long getIdMostSignificantBits() {
+        getId();
+        return idMostSignificantBits;
+    }
+
+    /**
+     * @return least significant 64 bits of the issue ID as UUID
+     */
+    long getIdLeastSignificantBits() {
+        getId();
+        return idLeastSignificantBits;
+    }
+
     public String getProjectName() {
         return projectName;
     }
@@ -394,4 +431,12 @@ public class BlackDuckIssue {
         this.latestVersionReleasedOn = latestVersionReleasedOn;
     }
 
+    public String getTruncatedColumns() {
+        return truncatedColumns;
+    }
+
+    public void setTruncatedColumns(final String truncatedColumns) {
+        this.truncatedColumns = truncatedColumns;
+    }
+
 }
@@ -0,0 +1,132 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
+
+/**
+ * Index based replacement of the reflective BeanProcessor mapping of BlackDuckIssue.
+ * Column positions are resolved once from the CSV header, rows are then copied into a reused issue object by
+ * BlackDuckIssueRowMapping, which the build generates from the @Parsed annotations of BlackDuckIssue.
+ * Values of repeated columns are deduplicated through the string pool of the parsing session.
+ */
+class BlackDuckIssueMapper {
+
+    static final int NOT_FOUND = -1;
+
+    /**
+     * Columns of the issue ID and of the standard vulnerability attributes, read besides the custom attribute columns.
+     */
+    private static final EnumSet<BlackDuckColumn> STANDARD_COLUMNS = EnumSet.of(BlackDuckColumn.COMPONENT_NAME, BlackDuckColumn.VERSION,
+            BlackDuckColumn.CHANNEL_VERSION_ORIGIN_ID, BlackDuckColumn.VULNERABILITY_ID, BlackDuckColumn.BASE_SCORE, BlackDuckColumn.EXPLOITABILITY,
+            BlackDuckColumn.IMPACT, BlackDuckColumn.SEVERITY);
+
+    private final int[] columnIndexes;
+
+    private final StringPool stringPool;
+
+    private final String[] headers;
+
+    /**
+     * @param headers
+     *            CSV header
+     * @param stringPool
+     *            pool for values of repeated columns, null to keep values as parsed
+     */
+    BlackDuckIssueMapper(final String[] headers, final StringPool stringPool) {
+        this(HeaderSchema.resolve(headers, Collections.emptyMap()), stringPool);
+    }
+
+    /**
+     * @param schema
+     *            resolved column layout of the CSV header
+     * @param stringPool
+     *            pool for values of repeated columns, null to keep values as parsed
+     */
+    BlackDuckIssueMapper(final HeaderSchema schema, final StringPool stringPool) {
+        this.stringPool = stringPool;
+        this.headers = schema.getHeaders();
+        this.columnIndexes = schema.getColumnIndexes();
+    }
+
+    /**
+     * Copies values of the row into provided issue. Values of columns missing in the row are set to null.
+     *
+     * @param row
+     *            parsed CSV row
+     * @param issue
+     *            reused issue object
+     */
+    void map(final String[] row, final BlackDuckIssue issue) {
+        issue.resetId();
+        BlackDuckIssueRowMapping.map(this, row, issue);
+        issue.setTruncatedColumns(truncatedColumns(row));
+    }
+
+    /**
+     * @return headers of the values cut by {@link BoundedColumnReader}, null if there are none
+     */
+    private String truncatedColumns(final String[] row) {
+        StringBuilder truncatedColumns = null;
+        for (int i = 0; i < row.length; i++) {
+            if (BoundedColumnReader.isTruncated(row[i])) {
+                if (truncatedColumns == null) {
+                    truncatedColumns = new StringBuilder();
+                } else {
+                    truncatedColumns.append(", ");
+                }
+                truncatedColumns.append(headers != null && i < headers.length ? headers[i] : String.valueOf(i));
+            }
+        }
+        return truncatedColumns == null ? null : truncatedColumns.toString();
+    }
+
+    /**
+     * Resolves columns read for the issue ID and the standard attributes of vulnerabilities. Custom attribute columns
+     * are resolved by {@link AttributeMapping}.
+     *
+     * @param columnIndexes
+     *            index of every column by ordinal, see {@link HeaderSchema#getColumnIndexes()}
+     * @return indexes of the read columns found in the header, in header order
+     */
+    static int[] selectedIndexes(final int[] columnIndexes) {
+        return STANDARD_COLUMNS.stream()
+                .mapToInt(column -> columnIndexes[column.ordinal()])
+                .filter(index -> index != NOT_FOUND)
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * @return value of the column, null if the column is missing
+     */
+    String value(final String[] row, final BlackDuckColumn column) {
+        final int index = columnIndexes[column.ordinal()];
+        if (index == NOT_FOUND || index >= row.length) {
+            return null;
+        }
+        return (stringPool != null && column.isRepeated()) ? stringPool.intern(row[index]) : row[index];
+    }
+
+    /**
+     * @return CVSS score of the column, null if the column is missing or empty
+     */
+    BigDecimal decimalValue(final String[] row, final BlackDuckColumn column) {
+        return CvssScore.decimalValue(value(row, column));
+    }
+
+    /**
+     * @return index of the column with the header, ignoring case and surrounding spaces, {@link #NOT_FOUND} if it is
+     *         missing
+     */
+    static int indexOf(final String[] headers, final String header) {
+        if (headers != null) {
+            for (int i = 0; i < headers.length; i++) {
+                if (header.equalsIgnoreCase(headers[i] == null ? null : headers[i].trim())) {
+                    return i;
+                }
+            }
+        }
+        return NOT_FOUND;
+    }
+}
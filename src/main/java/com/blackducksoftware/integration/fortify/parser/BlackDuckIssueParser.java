@@ -32,19 +32,77 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class BlackDuckIssueParser implements ParserPlugin<BlackDuckVulnerabilityAttribute> {
 
     private static Logger LOG = LoggerFactory.getLogger(BlackDuckIssueParser.class);
 
+    /**
+     * Number of uploads whose scan summary is kept between parseScan and parseVulnerabilities callbacks.
+     */
+    private static final int SCAN_SUMMARY_CACHE_SIZE = 64;
+
+    /**
+     * JMX name of the parser metrics, see {@link ParserMetricsMXBean}.
+     */
+    public static final String METRICS_MBEAN_NAME = "com.blackducksoftware.integration.fortify.parser:type=ParserMetrics";
+
+    private final ScanSummaryCache scanSummaryCache = new ScanSummaryCache(SCAN_SUMMARY_CACHE_SIZE);
+
+    private BlackDuckParserSettings settings = new BlackDuckParserSettings();
+
+    /**
+     * Admission of concurrent imports, null while the plugin is not started.
+     */
+    private volatile ImportScheduler importScheduler;
+
+    /**
+     * Vulnerabilities of imported reports by scan GUID, null if not enabled or the plugin is not started.
+     */
+    private volatile ReplayCache replayCache;
+
     @Override
     public void start() throws Exception {
         LOG.info("BlackDuckIssueParser is starting...");
+        settings = BlackDuckParserSettings.fromSystemProperties();
+        if (settings.isJmxEnabled()) {
+            final InMemoryParserMetrics metrics = new InMemoryParserMetrics();
+            settings.setMetricsRegistry(metrics);
+            registerMetricsMBean(metrics);
+        }
+        if (settings.getParallelism() > 1) {
+            settings.setParsingPool(ParallelCsvParser.newPool(settings.getParallelism()));
+        }
+        ParserWarmUp.run(settings);
+        importScheduler = new ImportScheduler(settings.getMaxConcurrentImports(), settings.getImportMemoryBudget(), settings.getMetricsRegistry());
+        if (settings.isReplayCache()) {
+            replayCache = new ReplayCache(settings);
+        }
     }
 
     @Override
     public void stop() throws Exception {
         LOG.info("BlackDuckIssueParser is stopping working...");
+        final ImportScheduler scheduler = importScheduler;
+        if (scheduler != null) {
+            scheduler.stop();
+            importScheduler = null;
+        }
+        replayCache = null;
+        if (settings.getParsingPool() != null) {
+            settings.getParsingPool().shutdownNow();
+            settings.setParsingPool(null);
+        }
+        scanSummaryCache.clear();
+        if (settings.isJmxEnabled()) {
+            unregisterMetricsMBean();
+        }
     }
 
     @Override
@@ -54,25 +112,152 @@ public class BlackDuckIssueParser implements ParserPlugin<BlackDuckVulnerability
 
     @Override
     public void parseScan(final ScanData scanData, final ScanBuilder scanBuilder) throws IOException {
-        final BlackDuckCSVParser blackDuckParser = new BlackDuckCSVParser();
-        try (final InputStream is = getScanInputStream(scanData)) {
-            final BlackDuckScan blackDuckScan = blackDuckParser.parseScan(is);
-            buildFortifyScan(scanBuilder, blackDuckScan);
+        final BlackDuckCSVParser blackDuckParser = new BlackDuckCSVParser(settings);
+        BlackDuckScanSummary summary = scanSummaryCache.get(scanData);
+        if (summary == null) {
+            try (final ScanSummaryInputStream is = ScanInputStream.openWithSummary(scanData)) {
+                is.drain();
+                summary = is.getSummary();
+            }
+            scanSummaryCache.put(scanData, summary);
         }
+        buildFortifyScan(scanBuilder, blackDuckParser.buildScan(summary));
     }
 
     @Override
     public void parseVulnerabilities(final ScanData scanData, final VulnerabilityHandler vh) throws ScanParsingException, IOException {
-        BlackDuckCsvRowProcessor blackDuckCsvRowProcessor = new BlackDuckCsvRowProcessor(vh);
-        final BlackDuckCSVParser blackDuckParser = new BlackDuckCSVParser();
-        try (final InputStream is = getScanInputStream(scanData)) {
-            blackDuckParser.parseIssues(is, blackDuckCsvRowProcessor);
+        final BlackDuckScanSummary summary = scanSummaryCache.get(scanData);
+        final ImportScheduler scheduler = importScheduler;
+        final ImportScheduler.Ticket ticket = scheduler == null ? null
+                : scheduler.acquire(project(scanData, summary), ImportScheduler.estimateMemory(summary, settings));
+        try {
+            importVulnerabilities(scanData, vh, summary);
+        } finally {
+            if (ticket != null) {
+                ticket.close();
+            }
+        }
+    }
+
+    /**
+     * @return key the import scheduler queues imports of the same project by
+     */
+    private static String project(final ScanData scanData, final BlackDuckScanSummary summary) {
+        if (summary != null && summary.getProjectName() != null) {
+            return summary.getProjectName();
         }
+        // project is not known before the first read, every upload is queued on its own
+        return scanData.getSessionId() != null ? scanData.getSessionId() : "";
     }
 
-    private InputStream getScanInputStream(final ScanData scanData) throws IOException {
-        // TODO: use correct predicate for entry name, for now use the first entry
-        return scanData.getInputStream(x -> x.endsWith(".csv"));
+    private void importVulnerabilities(final ScanData scanData, final VulnerabilityHandler vh, final BlackDuckScanSummary cachedSummary)
+            throws ScanParsingException, IOException {
+        final long importStart = System.nanoTime();
+        final ParserMetricsRegistry metricsRegistry = settings.getMetricsRegistry();
+        BlackDuckScanSummary summary = cachedSummary;
+        final ReplayCache cache = replayCache;
+        if (cache != null && summary != null) {
+            final long replayedRows = cache.replay(summary.getGuid(), vh);
+            if (replayedRows >= 0) {
+                LOG.info("Scan " + scanData.getSessionId() + " replayed with " + replayedRows + " vulnerabilities from the replay cache");
+                metricsRegistry.increment(ParserCounter.REPLAYED_SCANS, 1);
+                metricsRegistry.increment(ParserCounter.ROWS, replayedRows);
+                metricsRegistry.increment(ParserCounter.BYTES, summary.getByteCount());
+                metricsRegistry.recordTime(ParserTimer.IMPORT, System.nanoTime() - importStart);
+                return;
+            }
+        }
+        final ReplayCache.Writer cacheWriter = newCacheWriter(cache, vh);
+        BlackDuckCsvRowProcessor blackDuckCsvRowProcessor = new BlackDuckCsvRowProcessor(cacheWriter == null ? vh : cacheWriter, settings,
+                scanData.getSessionId(), summary == null ? 0 : summary.getRowCount());
+        final RowQuarantine quarantine = blackDuckCsvRowProcessor.getQuarantine();
+        final BlackDuckCSVParser blackDuckParser = new BlackDuckCSVParser(settings);
+        boolean parsed = false;
+        try {
+            final FileChannel channel = (summary != null && settings.isMemoryMapped()) ? ScanInputStream.openFileChannel(scanData) : null;
+            if (channel != null) {
+                // second pass over a local file, served by the page cache
+                blackDuckParser.parseIssues(channel, blackDuckCsvRowProcessor);
+            } else if (summary != null) {
+                try (final InputStream is = ScanInputStream.open(scanData, null)) {
+                    blackDuckParser.parseIssues(is, blackDuckCsvRowProcessor);
+                }
+            } else {
+                // collect the summary in the same pass, parseScan will not need to read the file again
+                try (final ScanSummaryInputStream summaryStream = ScanInputStream.openWithSummary(scanData)) {
+                    blackDuckParser.parseIssues(summaryStream, blackDuckCsvRowProcessor);
+                    if (summaryStream.isFullyRead()) {
+                        summary = summaryStream.getSummary();
+                        scanSummaryCache.put(scanData, summary);
+                    }
+                }
+            }
+            parsed = true;
+        } finally {
+            if (cacheWriter != null && parsed && summary != null) {
+                cacheWriter.commit(summary.getGuid());
+            } else if (cacheWriter != null) {
+                cacheWriter.abort();
+            }
+            if (quarantine != null) {
+                quarantine.close();
+            }
+        }
+        if (quarantine != null && quarantine.getQuarantinedRows() > 0) {
+            LOG.warn("Scan " + scanData.getSessionId() + " imported with " + quarantine.getQuarantinedRows() + " of "
+                    + (quarantine.getQuarantinedRows() + quarantine.getImportedRows()) + " rows quarantined"
+                    + (quarantine.getSideFile() == null ? "" : ", see " + quarantine.getSideFile()));
+        }
+        final DuplicateIdSet issueIds = blackDuckCsvRowProcessor.getIssueIds();
+        if (issueIds != null && issueIds.getDuplicates() > 0) {
+            LOG.info("Scan " + scanData.getSessionId() + " has " + issueIds.getDuplicates() + " rows repeating one of " + issueIds.size()
+                    + " issue IDs, duplicates skipped");
+        }
+        if (summary != null) {
+            metricsRegistry.increment(ParserCounter.BYTES, summary.getByteCount());
+        }
+        metricsRegistry.recordTime(ParserTimer.IMPORT, System.nanoTime() - importStart);
+    }
+
+    /**
+     * @return writer storing the vulnerabilities of the import in the replay cache, null if they are not cached
+     */
+    private static ReplayCache.Writer newCacheWriter(final ReplayCache cache, final VulnerabilityHandler vh) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.newWriter(vh);
+        } catch (final IOException e) {
+            LOG.warn("Unable to create replay cache entry, the scan will not be cached: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void registerMetricsMBean(final ParserMetricsMXBean metrics) {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(METRICS_MBEAN_NAME);
+            if (mBeanServer.isRegistered(name)) {
+                // left by a plugin instance which was not stopped
+                mBeanServer.unregisterMBean(name);
+            }
+            mBeanServer.registerMBean(metrics, name);
+        } catch (final JMException e) {
+            LOG.warn("Unable to register parser metrics MBean: " + e.getMessage());
+        }
+    }
+
+    private static void unregisterMetricsMBean() {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final ObjectName name = new ObjectName(METRICS_MBEAN_NAME);
+            if (mBeanServer.isRegistered(name)) {
+                mBeanServer.unregisterMBean(name);
+            }
+        } catch (final JMException e) {
+            LOG.warn("Unable to unregister parser metrics MBean: " + e.getMessage());
+        }
     }
 
     private void buildFortifyScan(final ScanBuilder scanBuilder, final BlackDuckScan blackDuckScan) {
@@ -0,0 +1,568 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.File;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import com.fortify.plugin.spi.VulnerabilityAttribute;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+/**
+ * Tuning options of the BlackDuck parser.
+ * Defaults keep the original single threaded behaviour, plugin reads overrides from system properties on start.
+ */
+public class BlackDuckParserSettings {
+
+    private static final String PROPERTY_PREFIX = "blackduck.parser.";
+
+    /**
+     * Number of threads parsing chunks of one report. 1 disables parallel parsing.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Approximate size in bytes of the chunks a report is split into for parallel parsing.
+     */
+    private int chunkSize = 4 * 1024 * 1024;
+
+    /**
+     * Maximum number of parsed chunks waiting to be passed to the VulnerabilityHandler. Bounds memory used by
+     * parallel parsing.
+     */
+    private int maxChunksInFlight = 0;
+
+    /**
+     * VulnerabilityHandler provided by SSC may be called from several threads at the same time.
+     * When false, vulnerabilities are always passed to the handler from the calling thread in report order.
+     */
+    private boolean threadSafeHandler;
+
+    /**
+     * Reading and decoding, tokenizing and vulnerability building run as separate pipeline stages.
+     * Ignored when parallel parsing is enabled.
+     */
+    private boolean pipelined;
+
+    /**
+     * Number of decoded 64K character blocks buffered between the reading and the tokenizing stage.
+     */
+    private int decodeQueueDepth = 16;
+
+    /**
+     * Number of row batches buffered between the tokenizing and the building stage.
+     */
+    private int rowQueueDepth = 64;
+
+    /**
+     * Longest value passed to the tokenizer, longer values are truncated and flagged. Defaults to the SSC limit of
+     * LONG_STRING attributes.
+     */
+    private int maxCharsPerColumn = VulnerabilityAttribute.MAX_LONG_STRING_LENGTH;
+
+    /**
+     * Characters of a row after which its remaining values are truncated to the SSC limit of STRING attributes.
+     * Bounds memory used by a single row together with maxCharsPerColumn.
+     */
+    private int maxCharsPerRow = 4 * VulnerabilityAttribute.MAX_LONG_STRING_LENGTH;
+
+    /**
+     * Number of characters the tokenizer reads from the input at once, bytes for the byte level tokenizer.
+     */
+    private int inputBufferSize = 1024 * 1024;
+
+    /**
+     * Sequential parsing tokenizes the undecoded UTF-8 bytes and decodes only the read columns. Cannot be combined with
+     * parallel or pipelined parsing, which tokenize decoded characters.
+     */
+    private boolean byteTokenizer;
+
+    /**
+     * Vulnerabilities recorded by a row processor before they are passed to the VulnerabilityHandler at once, 1 passes
+     * every vulnerability on while its row is processed.
+     */
+    private int emissionBatchSize = 1;
+
+    /**
+     * Handling of rows repeating the issue ID of a previous row, duplicates are not detected by default.
+     */
+    private DuplicatePolicy duplicatePolicy = DuplicatePolicy.OFF;
+
+    /**
+     * Vulnerabilities of imported reports are stored by scan GUID, a re-upload of an identical report replays them
+     * instead of parsing the report.
+     */
+    private boolean replayCache;
+
+    /**
+     * Directory of the replay cache entries.
+     */
+    private String replayCacheDirectory = System.getProperty("java.io.tmpdir") + File.separator + "blackduck-replay-cache";
+
+    /**
+     * Bytes of replay cache entries kept on disk, least recently used entries are deleted beyond.
+     */
+    private long replayCacheSize = 1024L * 1024 * 1024;
+
+    /**
+     * Receives timings and counts of the import, no metrics are collected by default.
+     */
+    private ParserMetricsRegistry metricsRegistry = ParserMetricsRegistry.NO_OP;
+
+    /**
+     * Pool the chunks of parallel parsing run on, shared by the imports of the plugin. Null to run every report on a
+     * pool of its own.
+     */
+    private ForkJoinPool parsingPool;
+
+    /**
+     * Plugin collects metrics in memory and registers them as JMX MBean on start.
+     */
+    private boolean jmxEnabled = false;
+
+    /**
+     * Every how many rows the per-row stage timers (tokenize, map, issue ID, date conversion, handler) are recorded, 1
+     * times every row and 0 disables them. Row counters and the import timer are always recorded.
+     */
+    private int timingSampleInterval = 64;
+
+    /**
+     * Uploads provided by SSC as a local file are read through a memory map once the scan summary is known.
+     */
+    private boolean memoryMapped = true;
+
+    /**
+     * Number of scans imported at the same time by the plugin, further imports wait for admission.
+     */
+    private int maxConcurrentImports = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Bytes of heap and direct memory the running imports may use together by their estimate. An import exceeding the
+     * budget alone is admitted when no other import runs.
+     */
+    private long importMemoryBudget = Runtime.getRuntime().maxMemory() / 2;
+
+    /**
+     * Headers of CSV columns read into custom attributes instead of their default column, keyed by attribute name.
+     */
+    private Map<String, String> attributeColumns = Collections.emptyMap();
+
+    /**
+     * Malformed rows are skipped and quarantined instead of aborting the import of the whole scan. A quoted value
+     * still open after maxCharsPerColumn characters is closed at its next line break.
+     */
+    private boolean faultTolerant;
+
+    /**
+     * Number of the last quarantined rows kept in memory per import.
+     */
+    private int maxQuarantinedRows = 100;
+
+    /**
+     * Directory every import writes its quarantined rows to, one file named after the upload session per scan. The
+     * quarantined rows keep all their values, the import reads every column when set. Rows are only logged when not
+     * set.
+     */
+    private String quarantineDirectory;
+
+    /**
+     * Share of quarantined rows above which the fault tolerant import is aborted, checked once
+     * {@value RowQuarantine#MIN_ROWS_FOR_ERROR_BUDGET} rows were read.
+     */
+    private double errorBudget = 0.5;
+
+    /**
+     * Creates settings with defaults overridden by blackduck.parser.* system properties.
+     *
+     * @return settings
+     */
+    public static BlackDuckParserSettings fromSystemProperties() {
+        final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+        settings.setParallelism(Integer.getInteger(PROPERTY_PREFIX + "parallelism", settings.getParallelism()));
+        settings.setChunkSize(Integer.getInteger(PROPERTY_PREFIX + "chunkSize", settings.getChunkSize()));
+        settings.setMaxChunksInFlight(Integer.getInteger(PROPERTY_PREFIX + "maxChunksInFlight", settings.maxChunksInFlight));
+        settings.setThreadSafeHandler(Boolean.getBoolean(PROPERTY_PREFIX + "threadSafeHandler"));
+        settings.setPipelined(Boolean.getBoolean(PROPERTY_PREFIX + "pipelined"));
+        settings.setDecodeQueueDepth(Integer.getInteger(PROPERTY_PREFIX + "decodeQueueDepth", settings.getDecodeQueueDepth()));
+        settings.setRowQueueDepth(Integer.getInteger(PROPERTY_PREFIX + "rowQueueDepth", settings.getRowQueueDepth()));
+        settings.setMaxCharsPerColumn(Integer.getInteger(PROPERTY_PREFIX + "maxCharsPerColumn", settings.getMaxCharsPerColumn()));
+        settings.setMaxCharsPerRow(Integer.getInteger(PROPERTY_PREFIX + "maxCharsPerRow", settings.getMaxCharsPerRow()));
+        settings.setInputBufferSize(Integer.getInteger(PROPERTY_PREFIX + "inputBufferSize", settings.getInputBufferSize()));
+        settings.setByteTokenizer(Boolean.getBoolean(PROPERTY_PREFIX + "byteTokenizer"));
+        settings.setEmissionBatchSize(Integer.getInteger(PROPERTY_PREFIX + "emissionBatchSize", settings.getEmissionBatchSize()));
+        settings.setDuplicatePolicy(DuplicatePolicy.valueOf(
+                System.getProperty(PROPERTY_PREFIX + "duplicatePolicy", settings.getDuplicatePolicy().name()).toUpperCase(Locale.ENGLISH)));
+        settings.setReplayCache(Boolean.getBoolean(PROPERTY_PREFIX + "replayCache"));
+        settings.setReplayCacheDirectory(System.getProperty(PROPERTY_PREFIX + "replayCacheDirectory", settings.getReplayCacheDirectory()));
+        settings.setReplayCacheSize(Long.getLong(PROPERTY_PREFIX + "replayCacheSize", settings.getReplayCacheSize()));
+        settings.setJmxEnabled(Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "jmxEnabled", "false")));
+        settings.setTimingSampleInterval(Integer.getInteger(PROPERTY_PREFIX + "timingSampleInterval", settings.getTimingSampleInterval()));
+        settings.setMemoryMapped(Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "memoryMapped", "true")));
+        settings.setMaxConcurrentImports(Integer.getInteger(PROPERTY_PREFIX + "maxConcurrentImports", settings.getMaxConcurrentImports()));
+        settings.setImportMemoryBudget(Long.getLong(PROPERTY_PREFIX + "importMemoryBudget", settings.getImportMemoryBudget()));
+        settings.setAttributeColumns(parseAttributeColumns(System.getProperty(PROPERTY_PREFIX + "attributeColumns", "")));
+        settings.setFaultTolerant(Boolean.getBoolean(PROPERTY_PREFIX + "faultTolerant"));
+        settings.setMaxQuarantinedRows(Integer.getInteger(PROPERTY_PREFIX + "maxQuarantinedRows", settings.getMaxQuarantinedRows()));
+        settings.setQuarantineDirectory(System.getProperty(PROPERTY_PREFIX + "quarantineDirectory"));
+        settings.setErrorBudget(Double.parseDouble(System.getProperty(PROPERTY_PREFIX + "errorBudget", String.valueOf(settings.getErrorBudget()))));
+        return settings;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (parallelism > 1 && byteTokenizer) {
+            throw new IllegalArgumentException("parallelism cannot be combined with byteTokenizer");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getMaxChunksInFlight() {
+        return maxChunksInFlight > 0 ? maxChunksInFlight : 2 * parallelism;
+    }
+
+    public void setMaxChunksInFlight(final int maxChunksInFlight) {
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    public boolean isThreadSafeHandler() {
+        return threadSafeHandler;
+    }
+
+    public void setThreadSafeHandler(final boolean threadSafeHandler) {
+        this.threadSafeHandler = threadSafeHandler;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public void setPipelined(final boolean pipelined) {
+        if (pipelined && byteTokenizer) {
+            throw new IllegalArgumentException("pipelined cannot be combined with byteTokenizer");
+        }
+        this.pipelined = pipelined;
+    }
+
+    public int getDecodeQueueDepth() {
+        return decodeQueueDepth;
+    }
+
+    public void setDecodeQueueDepth(final int decodeQueueDepth) {
+        if (decodeQueueDepth < 1) {
+            throw new IllegalArgumentException("decodeQueueDepth must be positive");
+        }
+        this.decodeQueueDepth = decodeQueueDepth;
+    }
+
+    public int getRowQueueDepth() {
+        return rowQueueDepth;
+    }
+
+    public void setRowQueueDepth(final int rowQueueDepth) {
+        if (rowQueueDepth < 1) {
+            throw new IllegalArgumentException("rowQueueDepth must be positive");
+        }
+        this.rowQueueDepth = rowQueueDepth;
+    }
+
+    public int getMaxCharsPerColumn() {
+        return maxCharsPerColumn;
+    }
+
+    public void setMaxCharsPerColumn(final int maxCharsPerColumn) {
+        if (maxCharsPerColumn < 1) {
+            throw new IllegalArgumentException("maxCharsPerColumn must be positive");
+        }
+        this.maxCharsPerColumn = maxCharsPerColumn;
+    }
+
+    public int getMaxCharsPerRow() {
+        return maxCharsPerRow;
+    }
+
+    public void setMaxCharsPerRow(final int maxCharsPerRow) {
+        if (maxCharsPerRow < 1) {
+            throw new IllegalArgumentException("maxCharsPerRow must be positive");
+        }
+        this.maxCharsPerRow = maxCharsPerRow;
+    }
+
+    public int getInputBufferSize() {
+        return inputBufferSize;
+    }
+
+    public void setInputBufferSize(final int inputBufferSize) {
+        if (inputBufferSize < 1) {
+            throw new IllegalArgumentException("inputBufferSize must be positive");
+        }
+        this.inputBufferSize = inputBufferSize;
+    }
+
+    public boolean isByteTokenizer() {
+        return byteTokenizer;
+    }
+
+    public void setByteTokenizer(final boolean byteTokenizer) {
+        if (byteTokenizer && (parallelism > 1 || pipelined)) {
+            throw new IllegalArgumentException("byteTokenizer cannot be combined with parallelism or pipelined");
+        }
+        this.byteTokenizer = byteTokenizer;
+    }
+
+    public int getEmissionBatchSize() {
+        return emissionBatchSize;
+    }
+
+    public void setEmissionBatchSize(final int emissionBatchSize) {
+        if (emissionBatchSize < 1) {
+            throw new IllegalArgumentException("emissionBatchSize must be positive");
+        }
+        this.emissionBatchSize = emissionBatchSize;
+    }
+
+    public DuplicatePolicy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    public void setDuplicatePolicy(final DuplicatePolicy duplicatePolicy) {
+        if (duplicatePolicy == null) {
+            throw new IllegalArgumentException("duplicatePolicy must not be null");
+        }
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    public boolean isReplayCache() {
+        return replayCache;
+    }
+
+    public void setReplayCache(final boolean replayCache) {
+        this.replayCache = replayCache;
+    }
+
+    public String getReplayCacheDirectory() {
+        return replayCacheDirectory;
+    }
+
+    public void setReplayCacheDirectory(final String replayCacheDirectory) {
+        if (replayCacheDirectory == null || replayCacheDirectory.isEmpty()) {
+            throw new IllegalArgumentException("replayCacheDirectory must not be empty");
+        }
+        this.replayCacheDirectory = replayCacheDirectory;
+    }
+
+    public long getReplayCacheSize() {
+        return replayCacheSize;
+    }
+
+    public void setReplayCacheSize(final long replayCacheSize) {
+        if (replayCacheSize < 1) {
+            throw new IllegalArgumentException("replayCacheSize must be positive");
+        }
+        this.replayCacheSize = replayCacheSize;
+    }
+
+    /**
+     * Creates tokenizer settings with the configured buffer size and a column limit fitting values limited by
+     * {@link #boundColumns(Reader)}.
+     *
+     * @return tokenizer settings
+     */
+    CsvParserSettings newCsvParserSettings() {
+        final CsvParserSettings parserSettings = new CsvParserSettings();
+        parserSettings.setInputBufferSize(inputBufferSize);
+        parserSettings.setMaxCharsPerColumn(maxCharsPerColumn + BoundedColumnReader.TRUNCATION_MARK.length() + 1);
+        return parserSettings;
+    }
+
+    /**
+     * Wraps the CSV content so that values respect the configured column and row limits.
+     *
+     * @param reader
+     *            CSV content
+     * @return bounded CSV content
+     */
+    Reader boundColumns(final Reader reader) {
+        return new BoundedColumnReader(reader, maxCharsPerColumn, maxCharsPerRow, faultTolerant);
+    }
+
+    /**
+     * @return size in bytes of the largest CSV record buffered by parallel parsing, the rest of the input starting with
+     *         a larger record is parsed sequentially
+     */
+    int getMaxRecordBytes() {
+        // up to 3 bytes per UTF-8 character of the row
+        return (int) Math.min(Integer.MAX_VALUE / 2, Math.max(chunkSize, 3L * maxCharsPerRow));
+    }
+
+    public ParserMetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    public void setMetricsRegistry(final ParserMetricsRegistry metricsRegistry) {
+        if (metricsRegistry == null) {
+            throw new IllegalArgumentException("metricsRegistry must not be null, use ParserMetricsRegistry.NO_OP");
+        }
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    ForkJoinPool getParsingPool() {
+        return parsingPool;
+    }
+
+    void setParsingPool(final ForkJoinPool parsingPool) {
+        this.parsingPool = parsingPool;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(final boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    public int getTimingSampleInterval() {
+        return timingSampleInterval;
+    }
+
+    public void setTimingSampleInterval(final int timingSampleInterval) {
+        if (timingSampleInterval < 0) {
+            throw new IllegalArgumentException("timingSampleInterval must not be negative");
+        }
+        this.timingSampleInterval = timingSampleInterval;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public void setMemoryMapped(final boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    public int getMaxConcurrentImports() {
+        return maxConcurrentImports;
+    }
+
+    public void setMaxConcurrentImports(final int maxConcurrentImports) {
+        if (maxConcurrentImports < 1) {
+            throw new IllegalArgumentException("maxConcurrentImports must be positive");
+        }
+        this.maxConcurrentImports = maxConcurrentImports;
+    }
+
+    public long getImportMemoryBudget() {
+        return importMemoryBudget;
+    }
+
+    public void setImportMemoryBudget(final long importMemoryBudget) {
+        if (importMemoryBudget < 1) {
+            throw new IllegalArgumentException("importMemoryBudget must be positive");
+        }
+        this.importMemoryBudget = importMemoryBudget;
+    }
+
+    public Map<String, String> getAttributeColumns() {
+        return attributeColumns;
+    }
+
+    /**
+     * @param attributeColumns
+     *            headers of CSV columns keyed by name of the {@link BlackDuckVulnerabilityAttribute} they are read into
+     */
+    public void setAttributeColumns(final Map<String, String> attributeColumns) {
+        if (attributeColumns == null) {
+            throw new IllegalArgumentException("attributeColumns must not be null");
+        }
+        for (final Map.Entry<String, String> entry : attributeColumns.entrySet()) {
+            if (Arrays.stream(BlackDuckVulnerabilityAttribute.values()).noneMatch(attribute -> attribute.attributeName().equals(entry.getKey()))) {
+                throw new IllegalArgumentException("Unknown attribute " + entry.getKey() + " in attributeColumns");
+            }
+            if (entry.getValue() == null || entry.getValue().trim().isEmpty()) {
+                throw new IllegalArgumentException("Column of attribute " + entry.getKey() + " must not be empty");
+            }
+        }
+        this.attributeColumns = Collections.unmodifiableMap(new LinkedHashMap<>(attributeColumns));
+    }
+
+    public boolean isFaultTolerant() {
+        return faultTolerant;
+    }
+
+    public void setFaultTolerant(final boolean faultTolerant) {
+        this.faultTolerant = faultTolerant;
+    }
+
+    public int getMaxQuarantinedRows() {
+        return maxQuarantinedRows;
+    }
+
+    public void setMaxQuarantinedRows(final int maxQuarantinedRows) {
+        if (maxQuarantinedRows < 1) {
+            throw new IllegalArgumentException("maxQuarantinedRows must be positive");
+        }
+        this.maxQuarantinedRows = maxQuarantinedRows;
+    }
+
+    public String getQuarantineDirectory() {
+        return quarantineDirectory;
+    }
+
+    /**
+     * @param quarantineDirectory
+     *            directory the quarantined rows of each scan are written to, null or empty to keep them in memory only
+     */
+    public void setQuarantineDirectory(final String quarantineDirectory) {
+        this.quarantineDirectory = quarantineDirectory == null || quarantineDirectory.isEmpty() ? null : quarantineDirectory;
+    }
+
+    public double getErrorBudget() {
+        return errorBudget;
+    }
+
+    public void setErrorBudget(final double errorBudget) {
+        if (!(errorBudget > 0 && errorBudget <= 1)) {
+            throw new IllegalArgumentException("errorBudget must be greater than 0 and at most 1");
+        }
+        this.errorBudget = errorBudget;
+    }
+
+    /**
+     * Parses attribute columns in the form attributeName=Column header;otherAttributeName=Other header.
+     */
+    private static Map<String, String> parseAttributeColumns(final String value) {
+        final Map<String, String> attributeColumns = new LinkedHashMap<>();
+        for (final String mapping : value.split(";")) {
+            if (mapping.trim().isEmpty()) {
+                continue;
+            }
+            final int separator = mapping.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Attribute column " + mapping + " must be in the form attributeName=Column header");
+            }
+            attributeColumns.put(mapping.substring(0, separator).trim(), mapping.substring(separator + 1).trim());
+        }
+        return attributeColumns;
+    }
+}
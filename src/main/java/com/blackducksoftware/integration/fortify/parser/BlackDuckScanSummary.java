@@ -0,0 +1,67 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.util.Date;
+
+/**
+ * Data collected during a single streaming read of the BlackDuck scan result file.
+ * Allows SSC callbacks to share the scan GUID and metadata without reading the file again.
+ */
+public class BlackDuckScanSummary {
+
+    /**
+     * MD5 hex digest of the whole scan result file, of the compressed bytes for compressed uploads.
+     */
+    private final String guid;
+
+    /**
+     * Scan date found in the file, null if the file does not provide a parsable one.
+     */
+    private final Date scanDate;
+
+    /**
+     * Number of data records (header excluded).
+     */
+    private final long rowCount;
+
+    /**
+     * Size of the CSV content in bytes.
+     */
+    private final long byteCount;
+
+    /**
+     * Hub project of the first data record, null if the file does not provide one.
+     */
+    private final String projectName;
+
+    public BlackDuckScanSummary(final String guid, final Date scanDate, final long rowCount, final long byteCount) {
+        this(guid, scanDate, rowCount, byteCount, null);
+    }
+
+    public BlackDuckScanSummary(final String guid, final Date scanDate, final long rowCount, final long byteCount, final String projectName) {
+        this.guid = guid;
+        this.scanDate = scanDate;
+        this.rowCount = rowCount;
+        this.byteCount = byteCount;
+        this.projectName = projectName;
+    }
+
+    public String getGuid() {
+        return guid;
+    }
+
+    public Date getScanDate() {
+        return scanDate;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+}
@@ -2,21 +2,23 @@ package com.blackducksoftware.integration.fortify.parser;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Common utilities class.
  */
 public final class BlackDuckUtils {
-    private static Logger LOG = LoggerFactory.getLogger(BlackDuckUtils.class);
+    /**
+     * Maximum number of distinct date strings remembered by the date conversion cache.
+     */
+    private static final int DATE_CACHE_SIZE = 4096;
+
+    private static final BlackDuckDateConverter DATE_CONVERTER = new BlackDuckDateConverter(ZoneId.systemDefault(), DATE_CACHE_SIZE);
 
     private BlackDuckUtils() {
     }
@@ -33,45 +35,20 @@ public final class BlackDuckUtils {
         }
     }
 
-    public static Date convertToDate(final String strDateValue) {
-        if (strDateValue == null) {
-            return null;
-        }
-        final String trimmedDate = strDateValue.trim();
-        if (trimmedDate.isEmpty()) {
-            return null;
-        }
-        // final DateTimeFormatter dateTimeFormatter = getDateFormat(trimmedDate);
+    public static MessageDigest newMD5Digest() {
         try {
-            final LocalDate localDate = LocalDate.parse(trimmedDate, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        } catch (final Exception e) {
-            LOG.error(
-                    String.format("Date string %s cannot be parsed to date and value will be ignored. Please make sure date format is yyyy-MM-dd", trimmedDate),
-                    e);
-            return null;
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            // every Java platform is required to support MD5
+            throw new IllegalStateException("MD5 algorithm is not available", e);
         }
     }
 
-    public static Date convertToDateTime(final String strDateValue) {
-        if (strDateValue == null) {
-            return null;
-        }
-        final String trimmedDate = strDateValue.trim();
-        if (trimmedDate.isEmpty()) {
-            return null;
-        }
+    public static Date convertToDate(final String strDateValue) {
+        return DATE_CONVERTER.toDate(strDateValue);
+    }
 
-        try {
-            final LocalDateTime localDateTime = LocalDateTime.parse(trimmedDate.substring(1, trimmedDate.length() - 1),
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS"));
-            return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
-        } catch (final Exception e) {
-            LOG.error(
-                    String.format("Date string %s cannot be parsed to date and value will be ignored. Please make sure date format is yyyy-MM-dd HH:mm:ss.SSS",
-                            trimmedDate),
-                    e);
-            return null;
-        }
+    public static Date convertToDateTime(final String strDateValue) {
+        return DATE_CONVERTER.toDateTime(strDateValue);
     }
 }
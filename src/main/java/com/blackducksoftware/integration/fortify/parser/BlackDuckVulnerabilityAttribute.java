@@ -34,7 +34,8 @@ public enum BlackDuckVulnerabilityAttribute implements VulnerabilityAttribute {
     UPGRADE_VERSION("upgradeVersion", AttrType.STRING, "Upgrade Version"),
     UPGRADE_RELEASED_ON("upgradeVersionReleasedOn", AttrType.STRING, "Upgrade Version Released On"),
     LATEST_VERSION("latestVersion", AttrType.STRING, "Latest Version"),
-    LATEST_RELEASED_ON("latestVersionReleasedOn", AttrType.STRING, "Latest Version Released On");
+    LATEST_RELEASED_ON("latestVersionReleasedOn", AttrType.STRING, "Latest Version Released On"),
+    TRUNCATED_COLUMNS("truncatedColumns", AttrType.STRING, "Truncated columns");
 
     private final String attributeName;
 
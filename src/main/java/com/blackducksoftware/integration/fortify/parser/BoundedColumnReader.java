@@ -0,0 +1,271 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader limiting the size of CSV values before they reach the tokenizer, so that a single huge row cannot exhaust the
+ * memory or abort the import.
+ * A value longer than maxCharsPerColumn is cut and ends with {@link #TRUNCATION_MARK}. Once a record exceeds
+ * maxCharsPerRow, its remaining values are cut at {@link #MIN_CHARS_PER_COLUMN} characters, which keeps short values
+ * like dates and severity intact. Quotes, delimiters and line breaks are never dropped, the CSV structure stays valid.
+ * Like the tokenizer, only a quote starting a value, after optional whitespace, opens a quoted value; a quote inside of
+ * an unquoted value is an ordinary character.
+ * For the fault tolerant import, a quoted value left open past the column limit is closed at its next line break, so
+ * that a missing quote costs the rows up to that line instead of the rest of the report.
+ */
+class BoundedColumnReader extends Reader {
+
+    /**
+     * Appended to every truncated value.
+     */
+    static final String TRUNCATION_MARK = "... [truncated]";
+
+    /**
+     * Characters kept for every value of a record exceeding the row limit, the SSC limit of STRING attributes.
+     */
+    static final int MIN_CHARS_PER_COLUMN = 1000;
+
+    private static final int INPUT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+
+    private final int maxCharsPerColumn;
+
+    private final int maxCharsPerRow;
+
+    private final boolean closeRunawayQuotes;
+
+    private final char[] input = new char[INPUT_BUFFER_SIZE];
+
+    private int inputPosition;
+
+    private int inputLength;
+
+    /**
+     * Output not fitting into the buffer of the caller, like the truncation mark.
+     */
+    private final StringBuilder pending = new StringBuilder();
+
+    private int pendingPosition;
+
+    private char[] output;
+
+    private int outputPosition;
+
+    private int outputEnd;
+
+    private boolean inQuotes;
+
+    /**
+     * No character of the value other than whitespace was read yet, a quote opens a quoted value.
+     */
+    private boolean valueStart = true;
+
+    /**
+     * Quote inside of a quoted value, either closing the value or escaping the next quote.
+     */
+    private boolean quotePending;
+
+    private int columnChars;
+
+    private int rowChars;
+
+    private boolean columnTruncated;
+
+    private boolean lastCharKept = true;
+
+    private boolean endOfInput;
+
+    /**
+     * @param reader
+     *            CSV content
+     * @param maxCharsPerColumn
+     *            longest value passed to the tokenizer
+     * @param maxCharsPerRow
+     *            characters of a record after which values are cut at {@link #MIN_CHARS_PER_COLUMN}
+     * @param closeRunawayQuotes
+     *            true to close a quoted value longer than maxCharsPerColumn at its next line break
+     */
+    BoundedColumnReader(final Reader reader, final int maxCharsPerColumn, final int maxCharsPerRow, final boolean closeRunawayQuotes) {
+        this.reader = reader;
+        this.maxCharsPerColumn = maxCharsPerColumn;
+        this.maxCharsPerRow = maxCharsPerRow;
+        this.closeRunawayQuotes = closeRunawayQuotes;
+    }
+
+    /**
+     * @param value
+     *            parsed value
+     * @return true if the value was cut by this reader
+     */
+    static boolean isTruncated(final String value) {
+        return value != null && value.endsWith(TRUNCATION_MARK);
+    }
+
+    @Override
+    public int read(final char[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        output = buffer;
+        outputPosition = offset;
+        outputEnd = offset + length;
+        while (outputPosition < outputEnd) {
+            if (pendingPosition < pending.length()) {
+                final int count = Math.min(pending.length() - pendingPosition, outputEnd - outputPosition);
+                pending.getChars(pendingPosition, pendingPosition + count, buffer, outputPosition);
+                pendingPosition += count;
+                outputPosition += count;
+                continue;
+            }
+            pending.setLength(0);
+            pendingPosition = 0;
+            if (inputPosition == inputLength) {
+                if (endOfInput || (outputPosition > offset && !reader.ready())) {
+                    // do not block when there is something to return
+                    break;
+                }
+                inputLength = reader.read(input, 0, input.length);
+                inputPosition = 0;
+                if (inputLength < 0) {
+                    inputLength = 0;
+                    endOfInput = true;
+                    endOfData();
+                }
+                continue;
+            }
+            while (inputPosition < inputLength && outputPosition < outputEnd && pending.length() == 0) {
+                process(input[inputPosition++]);
+            }
+        }
+        output = null;
+        final int count = outputPosition - offset;
+        return count == 0 && endOfInput ? -1 : count;
+    }
+
+    private void process(final char c) {
+        if (quotePending) {
+            quotePending = false;
+            if (c == '"') {
+                // escaped quote, one character of the value
+                if (keep(c)) {
+                    emit('"');
+                    emit('"');
+                }
+                return;
+            }
+            inQuotes = false;
+            endQuotedValue();
+        }
+        if (inQuotes) {
+            if (c == '"') {
+                quotePending = true;
+            } else if (c == '\n' && columnChars > maxCharsPerColumn && closeRunawayQuotes) {
+                // value without closing quote, resume at the line break
+                inQuotes = false;
+                endQuotedValue();
+                endValue();
+                rowChars = 0;
+                emit(c);
+            } else if (keep(c)) {
+                emit(c);
+            }
+        } else if (c == '"' && valueStart) {
+            inQuotes = true;
+            valueStart = false;
+            emit(c);
+        } else if (c == ',') {
+            endValue();
+            emit(c);
+        } else if (c == '\n') {
+            endValue();
+            rowChars = 0;
+            emit(c);
+        } else if (c == '\r') {
+            emit(c);
+        } else {
+            if (c > ' ') {
+                valueStart = false;
+            }
+            if (keep(c)) {
+                emit(c);
+            }
+        }
+    }
+
+    /**
+     * Counts a character of the value.
+     *
+     * @return false if the character is dropped
+     */
+    private boolean keep(final char c) {
+        final boolean kept;
+        if (Character.isLowSurrogate(c) && columnChars > 0) {
+            // never split a surrogate pair
+            kept = lastCharKept;
+        } else {
+            kept = columnChars < maxCharsPerColumn && (rowChars < maxCharsPerRow || columnChars < MIN_CHARS_PER_COLUMN);
+        }
+        columnChars++;
+        rowChars++;
+        lastCharKept = kept;
+        if (!kept) {
+            columnTruncated = true;
+        }
+        return kept;
+    }
+
+    private void endQuotedValue() {
+        if (columnTruncated) {
+            emit(TRUNCATION_MARK);
+            columnTruncated = false;
+        }
+        emit('"');
+    }
+
+    private void endValue() {
+        if (columnTruncated) {
+            emit(TRUNCATION_MARK);
+            columnTruncated = false;
+        }
+        columnChars = 0;
+        lastCharKept = true;
+        valueStart = true;
+    }
+
+    private void endOfData() {
+        if (quotePending) {
+            quotePending = false;
+            inQuotes = false;
+            endQuotedValue();
+        }
+        if (!inQuotes) {
+            endValue();
+        }
+    }
+
+    private void emit(final char c) {
+        if (pending.length() == 0 && outputPosition < outputEnd) {
+            output[outputPosition++] = c;
+        } else {
+            pending.append(c);
+        }
+    }
+
+    private void emit(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            emit(value.charAt(i));
+        }
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return pendingPosition < pending.length() || inputPosition < inputLength || reader.ready();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
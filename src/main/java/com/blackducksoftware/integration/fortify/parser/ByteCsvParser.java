@@ -0,0 +1,474 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.univocity.parsers.common.processor.RowProcessor;
+
+/**
+ * Sequential CSV tokenizer working on the raw UTF-8 bytes, an alternative to {@link InputStreamCsvParser} for Hub
+ * reports which are almost entirely ASCII.
+ * Delimiters, quotes and line breaks are ASCII and never part of a multi-byte UTF-8 sequence, so they are searched
+ * eight bytes at a time in 64-bit words without decoding the input. Only values of the selected columns are decoded
+ * to String, ASCII values without going through the UTF-8 decoder.
+ * Rows are the same as the ones of the univocity tokenizer reading through {@link BoundedColumnReader}: values are
+ * trimmed unless quoted, empty values and empty quoted values are null, empty lines are skipped and values are cut
+ * at the same column and row limits.
+ */
+class ByteCsvParser {
+
+    /**
+     * Most values of a record, the limit of the univocity tokenizer.
+     */
+    private static final int MAX_COLUMNS = 512;
+
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final long COMMAS = 0x2C2C2C2C2C2C2C2CL;
+
+    private static final long QUOTES = 0x2222222222222222L;
+
+    private static final long LINE_FEEDS = 0x0A0A0A0A0A0A0A0AL;
+
+    private static final int INITIAL_VALUE_SIZE = 1024;
+
+    private final int maxCharsPerColumn;
+
+    private final int maxCharsPerRow;
+
+    private final boolean closeRunawayQuotes;
+
+    /**
+     * Bytes of a value kept for decoding, enough for maxCharsPerColumn characters of three bytes each.
+     */
+    private final int maxValueBytes;
+
+    private final byte[] buffer;
+
+    /**
+     * Little endian view of the buffer, the lowest set bit of a match marks the first matching byte.
+     */
+    private final ByteBuffer words;
+
+    private InputStream inputStream;
+
+    private int position;
+
+    private int limit;
+
+    private long lineFeeds;
+
+    private String[] values = new String[64];
+
+    private int valueCount;
+
+    /**
+     * Columns decoded by index, null to decode all.
+     */
+    private boolean[] selectedColumns;
+
+    /**
+     * Characters of the previous values of the record, counted like {@link BoundedColumnReader} does.
+     */
+    private int rowChars;
+
+    /**
+     * Value still in the buffer, start is -1 when the value is copied or empty.
+     */
+    private int sliceStart = -1;
+
+    private int sliceEnd;
+
+    private byte[] value = new byte[INITIAL_VALUE_SIZE];
+
+    private int valueLength;
+
+    private int valueChars;
+
+    /**
+     * Whitespace between the closing quote and the delimiter.
+     */
+    private int trailingChars;
+
+    private boolean asciiValue;
+
+    private boolean quotedValue;
+
+    /**
+     * @param settings
+     *            buffer size and value limits
+     */
+    ByteCsvParser(final BlackDuckParserSettings settings) {
+        this.maxCharsPerColumn = settings.getMaxCharsPerColumn();
+        this.maxCharsPerRow = settings.getMaxCharsPerRow();
+        this.closeRunawayQuotes = settings.isFaultTolerant();
+        this.maxValueBytes = (int) Math.min(Integer.MAX_VALUE - 8, 3L * (maxCharsPerColumn + 1));
+        this.buffer = new byte[settings.getInputBufferSize()];
+        this.words = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Parses the header and passes every following record to the processor.
+     *
+     * @param inputStream
+     *            UTF-8 encoded CSV content
+     * @param rowProcessor
+     *            receiver of the rows, a {@link SelectiveRowProcessor} gets only its columns decoded
+     * @throws ScanParsingException
+     *             if a record has too many values or the processor fails
+     * @throws IOException
+     *             if the content cannot be read
+     */
+    void parse(final InputStream inputStream, final RowProcessor rowProcessor) throws ScanParsingException, IOException {
+        this.inputStream = inputStream;
+        final String[] headers = readRecord() ? Arrays.copyOf(values, valueCount) : null;
+        if (headers != null && rowProcessor instanceof SelectiveRowProcessor) {
+            selectedColumns = new boolean[headers.length];
+            for (final int index : ((SelectiveRowProcessor) rowProcessor).selectedIndexes(headers)) {
+                selectedColumns[index] = true;
+            }
+        }
+        final LineContext context = new LineContext(headers);
+        try {
+            rowProcessor.processStarted(context);
+            while (!context.isStopped() && readRecord()) {
+                context.recordProcessed();
+                context.line = lineFeeds;
+                rowProcessor.rowProcessed(Arrays.copyOf(values, valueCount), context);
+            }
+        } catch (final RuntimeException e) {
+            throw new ScanParsingException("CSV parsing error: " + e.getMessage(), e);
+        } finally {
+            rowProcessor.processEnded(context);
+        }
+    }
+
+    /**
+     * Reads the values of the next non empty record.
+     *
+     * @return false at the end of the input
+     */
+    private boolean readRecord() throws ScanParsingException, IOException {
+        while (true) {
+            valueCount = 0;
+            rowChars = 0;
+            if (position == limit && !fill()) {
+                return false;
+            }
+            int terminator;
+            do {
+                terminator = readValue();
+            } while (terminator == ',');
+            if (valueCount > 1 || valueChars > 0 || quotedValue) {
+                return true;
+            }
+            // blank line
+            if (terminator < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads one value into the record.
+     *
+     * @return delimiter or line feed ending the value, -1 at the end of the input
+     */
+    private int readValue() throws ScanParsingException, IOException {
+        if (valueCount == MAX_COLUMNS) {
+            throw new ScanParsingException("CSV parsing error: more than " + MAX_COLUMNS + " values in the record ending on line " + (lineFeeds + 1));
+        }
+        final boolean selected = selectedColumns == null || valueCount >= selectedColumns.length || selectedColumns[valueCount];
+        sliceStart = -1;
+        valueLength = 0;
+        valueChars = 0;
+        trailingChars = 0;
+        asciiValue = true;
+        int leadingWhitespace = 0;
+        int c;
+        while ((c = peek()) >= 0 && c <= ' ' && c != '\n') {
+            position++;
+            if (c != '\r') {
+                leadingWhitespace++;
+            }
+        }
+        quotedValue = c == '"';
+        final int terminator;
+        if (quotedValue) {
+            position++;
+            terminator = readQuoted(selected, leadingWhitespace);
+        } else {
+            terminator = readUnquoted(selected);
+        }
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, 2 * values.length);
+        }
+        values[valueCount++] = selected ? decode(leadingWhitespace) : null;
+        rowChars += leadingWhitespace + valueChars + trailingChars;
+        return terminator;
+    }
+
+    private int readUnquoted(final boolean selected) throws IOException {
+        while (position < limit || fill()) {
+            final int end = scan(COMMAS, LINE_FEEDS);
+            append(selected, position, end);
+            position = end;
+            if (end < limit) {
+                position++;
+                return endOfValue(buffer[end]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a quoted value. A quote not followed by a quote, delimiter or line break is part of the value, like the
+     * univocity tokenizer keeps unescaped quotes.
+     */
+    private int readQuoted(final boolean selected, final int leadingWhitespace) throws IOException {
+        while (position < limit || fill()) {
+            final int end = scan(QUOTES, LINE_FEEDS);
+            append(selected, position, end);
+            position = end;
+            if (end == limit) {
+                continue;
+            }
+            position++;
+            if (buffer[end] == '\n') {
+                if (closeRunawayQuotes && leadingWhitespace + valueChars > maxCharsPerColumn) {
+                    // value without closing quote, resume at the line break
+                    return endOfValue('\n');
+                }
+                lineFeeds++;
+                append(selected, end, end + 1);
+                continue;
+            }
+            int c = peek();
+            if (c == '"') {
+                // escaped quote
+                position++;
+                append(selected, '"');
+                continue;
+            }
+            final StringBuilder trailingWhitespace = new StringBuilder(0);
+            while (c >= 0 && c <= ' ' && c != '\n') {
+                position++;
+                trailingWhitespace.append((char) c);
+                c = peek();
+            }
+            if (c < 0 || c == ',' || c == '\n') {
+                // counted for the row limit, the value itself ends at the quote
+                trailingChars = trailingWhitespace.length();
+                if (c < 0) {
+                    return -1;
+                }
+                position++;
+                return endOfValue(c);
+            }
+            append(selected, '"');
+            for (int i = 0; i < trailingWhitespace.length(); i++) {
+                append(selected, trailingWhitespace.charAt(i));
+            }
+        }
+        return -1;
+    }
+
+    private int endOfValue(final int terminator) {
+        if (terminator == '\n') {
+            lineFeeds++;
+        }
+        return terminator;
+    }
+
+    /**
+     * @return index of the first byte equal to one of the patterns from the current position, the limit if none
+     */
+    private int scan(final long pattern, final long otherPattern) {
+        int i = position;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            final long word = words.getLong(i);
+            final long found = matches(word, pattern) | matches(word, otherPattern);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < limit; i++) {
+            if (buffer[i] == (byte) pattern || buffer[i] == (byte) otherPattern) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * @return word with the high bit set in every byte equal to the byte of the pattern
+     */
+    private static long matches(final long word, final long pattern) {
+        final long difference = word ^ pattern;
+        return ~(((difference & LOW_BITS) + LOW_BITS) | difference | LOW_BITS);
+    }
+
+    /**
+     * Counts the characters of the bytes and adds them to the value if it is decoded.
+     */
+    private void append(final boolean selected, final int from, final int to) {
+        if (from == to) {
+            return;
+        }
+        valueChars += countChars(from, to);
+        if (!selected) {
+            return;
+        }
+        if (valueLength == 0 && sliceStart < 0) {
+            sliceStart = from;
+            sliceEnd = to;
+        } else if (sliceStart >= 0 && sliceEnd == from) {
+            sliceEnd = to;
+        } else {
+            copySlice();
+            copy(buffer, from, to - from);
+        }
+    }
+
+    private void append(final boolean selected, final char c) {
+        valueChars++;
+        if (selected) {
+            copySlice();
+            if (valueLength < maxValueBytes) {
+                ensureValueCapacity(valueLength + 1);
+                value[valueLength++] = (byte) c;
+            }
+        }
+    }
+
+    /**
+     * @return UTF-16 characters of the UTF-8 bytes, clears the ASCII flag of the value for any multi-byte sequence
+     */
+    private int countChars(final int from, final int to) {
+        int chars = 0;
+        int i = from;
+        while (i < to) {
+            if (i + Long.BYTES <= to && (words.getLong(i) & HIGH_BITS) == 0) {
+                chars += Long.BYTES;
+                i += Long.BYTES;
+                continue;
+            }
+            final int b = buffer[i++] & 0xFF;
+            if (b < 0x80) {
+                chars++;
+            } else {
+                asciiValue = false;
+                if (b >= 0xF0) {
+                    // surrogate pair
+                    chars += 2;
+                } else if (b >= 0xC0) {
+                    chars++;
+                }
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Moves the part of the value still in the buffer to the value bytes.
+     */
+    private void copySlice() {
+        if (sliceStart >= 0) {
+            final int start = sliceStart;
+            sliceStart = -1;
+            copy(buffer, start, sliceEnd - start);
+        }
+    }
+
+    private void copy(final byte[] bytes, final int offset, final int length) {
+        final int count = Math.min(length, maxValueBytes - valueLength);
+        if (count > 0) {
+            ensureValueCapacity(valueLength + count);
+            System.arraycopy(bytes, offset, value, valueLength, count);
+            valueLength += count;
+        }
+    }
+
+    private void ensureValueCapacity(final int capacity) {
+        if (capacity > value.length) {
+            value = Arrays.copyOf(value, Math.max(capacity, Math.min(maxValueBytes, 2 * value.length)));
+        }
+    }
+
+    /**
+     * Decodes the value and cuts it where {@link BoundedColumnReader} would.
+     */
+    private String decode(final int leadingWhitespace) {
+        final String decoded;
+        if (sliceStart >= 0) {
+            decoded = new String(buffer, sliceStart, sliceEnd - sliceStart, asciiValue ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        } else {
+            decoded = new String(value, 0, valueLength, asciiValue ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        }
+        final int maxChars = Math.min(maxCharsPerColumn, Math.max(BoundedColumnReader.MIN_CHARS_PER_COLUMN, maxCharsPerRow - rowChars));
+        if (leadingWhitespace + valueChars > maxChars) {
+            int kept = Math.min(Math.max(0, maxChars - leadingWhitespace), decoded.length());
+            if (kept < decoded.length() && leadingWhitespace + kept > 0 && Character.isLowSurrogate(decoded.charAt(kept))) {
+                // never split a surrogate pair
+                kept++;
+            }
+            return decoded.substring(0, kept) + BoundedColumnReader.TRUNCATION_MARK;
+        }
+        final String trimmed = quotedValue ? decoded : decoded.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * @return next byte without consuming it, -1 at the end of the input
+     */
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    /**
+     * Reads the next bytes into the buffer, the part of the current value still in the buffer is copied first.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        copySlice();
+        position = 0;
+        limit = 0;
+        int count;
+        while ((count = inputStream.read(buffer)) == 0) {
+            // read again, the stream has not reached its end
+        }
+        if (count < 0) {
+            return false;
+        }
+        limit = count;
+        return true;
+    }
+
+    /**
+     * Context reporting the line of the record like the univocity tokenizer, as the number of line feeds read.
+     */
+    private static final class LineContext extends DetachedParsingContext {
+
+        private long line = -1;
+
+        private LineContext(final String[] headers) {
+            super(headers);
+        }
+
+        @Override
+        public long currentLine() {
+            return line;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.univocity.parsers.common.processor.RowProcessor;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+/**
+ * Configures the tokenizer to materialize only the columns read by a {@link SelectiveRowProcessor}.
+ * The selection is resolved against the actual header by index, header names of the report may differ in case or
+ * surrounding spaces like the mapping of BlackDuckIssueMapper allows. Other processors get all columns.
+ * The tokenizer has to extract the header record itself: it applies a selection from the record after the first one it
+ * parses, with headers set in the settings the first row would be parsed whole.
+ */
+final class ColumnSelection {
+
+    private ColumnSelection() {
+    }
+
+    /**
+     * @param headers
+     *            CSV header, null if the report has none
+     * @param rowProcessor
+     *            receiver of the rows
+     * @return indexes of the columns to parse, null to parse all
+     */
+    static Integer[] selectedIndexes(final String[] headers, final RowProcessor rowProcessor) {
+        if (headers == null || !(rowProcessor instanceof SelectiveRowProcessor)) {
+            return null;
+        }
+        return IntStream.of(((SelectiveRowProcessor) rowProcessor).selectedIndexes(headers)).boxed().toArray(Integer[]::new);
+    }
+
+    /**
+     * Limits the tokenizer to the selected columns.
+     *
+     * @param parserSettings
+     *            tokenizer settings with header extraction enabled
+     * @param selectedIndexes
+     *            indexes of the columns to parse, null to parse all
+     */
+    static void select(final CsvParserSettings parserSettings, final Integer[] selectedIndexes) {
+        if (selectedIndexes != null) {
+            parserSettings.selectIndexes(selectedIndexes);
+            // skipped values stay in place as null, column indexes of the header remain valid
+            parserSettings.setColumnReorderingEnabled(false);
+        }
+    }
+
+    /**
+     * Selects the columns of a tokenizer which extracts the header from the content. For a selective processor the
+     * header record is read ahead here, so that the selection can be resolved before the tokenizer starts, and put
+     * back for the tokenizer to extract it.
+     *
+     * @param parserSettings
+     *            tokenizer settings with header extraction enabled
+     * @param reader
+     *            content positioned at the header record
+     * @param rowProcessor
+     *            receiver of the rows
+     * @param settings
+     *            limits of the parsed values
+     * @return content to parse, positioned at the header record
+     * @throws IOException
+     *             if the content cannot be read
+     */
+    static Reader selectColumns(final CsvParserSettings parserSettings, final Reader reader, final RowProcessor rowProcessor,
+            final BlackDuckParserSettings settings) throws IOException {
+        if (!(rowProcessor instanceof SelectiveRowProcessor)) {
+            return reader;
+        }
+        final String headerRecord = readRecord(reader);
+        final List<String[]> rows = new CsvParser(settings.newCsvParserSettings()).parseAll(new StringReader(headerRecord));
+        // an empty first record leaves the header to the tokenizer without a selection
+        if (!rows.isEmpty()) {
+            select(parserSettings, selectedIndexes(rows.get(0), rowProcessor));
+        }
+        final PushbackReader pushbackReader = new PushbackReader(reader, Math.max(1, headerRecord.length()));
+        pushbackReader.unread(headerRecord.toCharArray());
+        return pushbackReader;
+    }
+
+    /**
+     * @return characters of the first record including its line break
+     */
+    private static String readRecord(final Reader reader) throws IOException {
+        final StringBuilder record = new StringBuilder();
+        boolean inQuotes = false;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            record.append((char) c);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == '\n' && !inQuotes) {
+                break;
+            }
+        }
+        return record.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+
+/**
+ * Splits CSV input into chunks of complete records.
+ * Chunks are cut after a line break that is not inside a quoted value, so every chunk can be parsed on its own.
+ * Works on UTF-8 bytes, see {@link CsvRecordScanner}.
+ * A record larger than maxRecordBytes is not buffered, splitting stops and the rest of the input including that record
+ * is available from {@link #remainder()}.
+ */
+class CsvChunkSplitter {
+
+    private static final int NO_BOUNDARY = -1;
+
+    private final InputStream inputStream;
+
+    private final int maxRecordBytes;
+
+    private byte[] buffer;
+
+    private int length;
+
+    private int scanned;
+
+    private int lastBoundary = NO_BOUNDARY;
+
+    private final CsvRecordScanner recordScanner = new CsvRecordScanner();
+
+    private boolean endOfStream;
+
+    private boolean oversized;
+
+    CsvChunkSplitter(final InputStream inputStream, final int chunkSize, final int maxRecordBytes) {
+        this.inputStream = inputStream;
+        this.buffer = new byte[chunkSize];
+        this.maxRecordBytes = maxRecordBytes;
+    }
+
+    /**
+     * @return bytes of the next single record, null at the end of input or at a record larger than maxRecordBytes.
+     */
+    byte[] nextRecord() throws IOException {
+        return next(1, true);
+    }
+
+    /**
+     * @return next chunk of whole records, at least chunkSize bytes long unless input ends, null at the end of input or
+     *         at a record larger than maxRecordBytes.
+     */
+    byte[] nextChunk() throws IOException {
+        return next(buffer.length, false);
+    }
+
+    private byte[] next(final int targetSize, final boolean singleRecord) throws IOException {
+        while (true) {
+            for (; scanned < length; scanned++) {
+                if (recordScanner.endsRecord(buffer[scanned])) {
+                    lastBoundary = scanned + 1;
+                    if (singleRecord) {
+                        scanned++;
+                        break;
+                    }
+                }
+            }
+            if (lastBoundary != NO_BOUNDARY && (singleRecord || length >= targetSize)) {
+                return cut(lastBoundary);
+            }
+            if (endOfStream) {
+                return length == 0 ? null : cut(length);
+            }
+            if (oversized || !fill()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return false if the buffer is full and may not grow any more
+     */
+    private boolean fill() throws IOException {
+        if (length == buffer.length) {
+            // a single record is larger than the buffer
+            if (buffer.length >= maxRecordBytes) {
+                oversized = true;
+                return false;
+            }
+            buffer = Arrays.copyOf(buffer, (int) Math.min(2L * buffer.length, maxRecordBytes));
+        }
+        final int count = inputStream.read(buffer, length, buffer.length - length);
+        if (count < 0) {
+            endOfStream = true;
+        } else {
+            length += count;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if splitting stopped at a record larger than maxRecordBytes
+     */
+    boolean isOversized() {
+        return oversized;
+    }
+
+    /**
+     * @return input not returned as chunk yet
+     */
+    InputStream remainder() {
+        return new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), inputStream);
+    }
+
+    private byte[] cut(final int end) {
+        final byte[] chunk = Arrays.copyOf(buffer, end);
+        length -= end;
+        scanned -= end;
+        System.arraycopy(buffer, end, buffer, 0, length);
+        lastBoundary = NO_BOUNDARY;
+        return chunk;
+    }
+}
@@ -0,0 +1,55 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+/**
+ * Finds the line breaks ending CSV records in UTF-8 bytes.
+ * Like the tokenizer, only a quote starting a value, after optional whitespace, opens a quoted value; a quote inside of
+ * an unquoted value is an ordinary character. Quote, delimiter and line break bytes never occur inside multi-byte
+ * characters.
+ */
+class CsvRecordScanner {
+
+    private boolean inQuotes;
+
+    /**
+     * Quote inside of a quoted value, either closing the value or escaping the next quote.
+     */
+    private boolean quotePending;
+
+    /**
+     * No byte of the value other than whitespace was read yet, a quote opens a quoted value.
+     */
+    private boolean valueStart = true;
+
+    /**
+     * @return true if the byte is a line break ending a record
+     */
+    boolean endsRecord(final byte b) {
+        if (quotePending) {
+            quotePending = false;
+            if (b == '"') {
+                // escaped quote
+                return false;
+            }
+            inQuotes = false;
+        }
+        if (inQuotes) {
+            if (b == '"') {
+                quotePending = true;
+            }
+            return false;
+        }
+        if (b == '"' && valueStart) {
+            inQuotes = true;
+            valueStart = false;
+        } else if (b == ',') {
+            valueStart = true;
+        } else if (b == '\n') {
+            valueStart = true;
+            return true;
+        } else if (b < 0 || b > ' ') {
+            // bytes of multi-byte characters are negative
+            valueStart = false;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.math.BigDecimal;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Decoder of the CVSS score columns (Base Score, Exploitability, Impact).
+ * Scores have one decimal digit between 0.0 and 10.0, so there are only 101 distinct values. Values of the usual
+ * "d.d" and "10.0" layouts are decoded without parsing into shared canonical BigDecimal instances, their float values
+ * are precomputed. Other values fall back to BigDecimal parsing.
+ */
+final class CvssScore {
+
+    private static final int MAX_TENTHS = 100;
+
+    private static final BigDecimal[] DECIMAL_VALUES = new BigDecimal[MAX_TENTHS + 1];
+
+    /**
+     * Float values of the canonical instances, found by identity. BigDecimal.floatValue() of a value with a decimal
+     * digit formats and parses a string.
+     */
+    private static final Map<BigDecimal, Float> FLOAT_VALUES = new IdentityHashMap<>(2 * (MAX_TENTHS + 1));
+
+    static {
+        for (int tenths = 0; tenths <= MAX_TENTHS; tenths++) {
+            DECIMAL_VALUES[tenths] = BigDecimal.valueOf(tenths, 1);
+            FLOAT_VALUES.put(DECIMAL_VALUES[tenths], DECIMAL_VALUES[tenths].floatValue());
+        }
+    }
+
+    private CvssScore() {
+    }
+
+    /**
+     * @param value
+     *            CSV value, may be surrounded by spaces
+     * @return decimal value, null for null
+     * @throws NumberFormatException
+     *             if the value is not a number
+     */
+    static BigDecimal decimalValue(final String value) {
+        if (value == null) {
+            return null;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        final int length = end - start;
+        if (length == 3 && isDigit(value.charAt(start)) && value.charAt(start + 1) == '.' && isDigit(value.charAt(start + 2))) {
+            return DECIMAL_VALUES[(value.charAt(start) - '0') * 10 + value.charAt(start + 2) - '0'];
+        }
+        if (length == 4 && value.startsWith("10.0", start)) {
+            return DECIMAL_VALUES[MAX_TENTHS];
+        }
+        return new BigDecimal(value.substring(start, end));
+    }
+
+    /**
+     * @param score
+     *            decimal value of a score column, may be null
+     * @return float value of the score, 0 for null
+     */
+    static float floatValue(final BigDecimal score) {
+        if (score == null) {
+            return 0;
+        }
+        final Float canonicalValue = FLOAT_VALUES.get(score);
+        return canonicalValue == null ? score.floatValue() : canonicalValue;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
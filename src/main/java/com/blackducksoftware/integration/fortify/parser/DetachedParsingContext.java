@@ -0,0 +1,79 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import com.univocity.parsers.common.ParsingContext;
+
+/**
+ * ParsingContext passed to RowProcessor when rows are parsed away from the thread that processes them.
+ * Only headers, record count and stop requests are tracked.
+ */
+class DetachedParsingContext implements ParsingContext {
+
+    private final String[] headers;
+
+    private long currentRecord;
+
+    private volatile boolean stopped;
+
+    DetachedParsingContext(final String[] headers) {
+        this.headers = headers;
+    }
+
+    void recordProcessed() {
+        currentRecord++;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public long currentLine() {
+        return -1;
+    }
+
+    @Override
+    public long currentChar() {
+        return -1;
+    }
+
+    @Override
+    public int currentColumn() {
+        return -1;
+    }
+
+    @Override
+    public long currentRecord() {
+        return currentRecord;
+    }
+
+    @Override
+    public void skipLines(final int lines) {
+        throw new UnsupportedOperationException("Lines cannot be skipped once parsed");
+    }
+
+    @Override
+    public String[] headers() {
+        return headers;
+    }
+
+    @Override
+    public int[] extractedFieldIndexes() {
+        return null;
+    }
+
+    @Override
+    public boolean columnsReordered() {
+        return false;
+    }
+
+    @Override
+    public String currentParsedContent() {
+        return null;
+    }
+}
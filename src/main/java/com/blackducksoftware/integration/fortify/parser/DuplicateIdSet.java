@@ -0,0 +1,181 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Issue IDs seen by an import, used to detect duplicate rows. IDs are kept as two longs in a direct buffer outside the
+ * Java heap, an open addressing table with linear probing, so millions of IDs neither create objects nor add to the
+ * garbage collected heap. The table is sized for the expected number of IDs and doubles when it gets too full.
+ * A slot with zero most significant bits is empty, issue IDs are version 3 UUIDs and always have the version bits set.
+ * Shared by the forks of a row processor.
+ */
+final class DuplicateIdSet {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DuplicateIdSet.class);
+
+    private static final int SLOT_BYTES = 16;
+
+    /**
+     * Largest number of slots fitting into one direct buffer.
+     */
+    static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private static final long GOLDEN_RATIO = 0x9e3779b97f4a7c15L;
+
+    private ByteBuffer slots;
+
+    private int capacity;
+
+    private int shift;
+
+    private int size;
+
+    private long duplicates;
+
+    private boolean untracked;
+
+    /**
+     * @param expectedIds
+     *            number of IDs the table is sized for, 0 if unknown
+     */
+    DuplicateIdSet(final long expectedIds) {
+        final int expectedCapacity = capacityFor(expectedIds);
+        try {
+            allocate(expectedCapacity);
+        } catch (final OutOfMemoryError e) {
+            // direct memory is limited by -XX:MaxDirectMemorySize, start small and grow as far as possible
+            LOG.warn("Unable to reserve " + (long) expectedCapacity * SLOT_BYTES + " bytes for issue IDs: " + e.getMessage());
+            allocate(MIN_CAPACITY);
+        }
+    }
+
+    /**
+     * @param expectedIds
+     *            number of IDs the table is sized for, 0 if unknown
+     * @return bytes of the table outside the heap before it grows
+     */
+    static long memoryFor(final long expectedIds) {
+        return (long) capacityFor(expectedIds) * SLOT_BYTES;
+    }
+
+    /**
+     * @return power of two number of slots keeping the table at most three quarters full
+     */
+    static int capacityFor(final long expectedIds) {
+        final long minCapacity = expectedIds + expectedIds / 3 + 1;
+        if (minCapacity >= MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) minCapacity - 1) << 1);
+    }
+
+    private void allocate(final int newCapacity) {
+        slots = ByteBuffer.allocateDirect(newCapacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        capacity = newCapacity;
+        shift = Long.numberOfLeadingZeros(newCapacity) + 1;
+    }
+
+    /**
+     * Adds the ID.
+     *
+     * @param mostSignificantBits
+     *            most significant bits of the ID, not 0
+     * @param leastSignificantBits
+     *            least significant bits of the ID
+     * @return false if the ID was added before
+     */
+    synchronized boolean add(final long mostSignificantBits, final long leastSignificantBits) {
+        if (mostSignificantBits == 0) {
+            throw new IllegalArgumentException("Most significant bits of the ID must not be 0");
+        }
+        int offset = find(mostSignificantBits, leastSignificantBits);
+        if (slots.getLong(offset) != 0) {
+            duplicates++;
+            return false;
+        }
+        if (size >= capacity - capacity / 4) {
+            if (untracked || !grow()) {
+                if (!untracked) {
+                    untracked = true;
+                    LOG.warn("Table of " + size + " issue IDs is full, duplicates of further IDs are not detected");
+                }
+                return true;
+            }
+            offset = find(mostSignificantBits, leastSignificantBits);
+        }
+        slots.putLong(offset, mostSignificantBits);
+        slots.putLong(offset + 8, leastSignificantBits);
+        size++;
+        return true;
+    }
+
+    /**
+     * @return offset of the slot holding the ID or of the empty slot where it belongs
+     */
+    private int find(final long mostSignificantBits, final long leastSignificantBits) {
+        final int mask = capacity - 1;
+        int index = (int) (((mostSignificantBits ^ leastSignificantBits) * GOLDEN_RATIO) >>> shift);
+        while (true) {
+            final int offset = index * SLOT_BYTES;
+            final long slotBits = slots.getLong(offset);
+            if (slotBits == 0 || (slotBits == mostSignificantBits && slots.getLong(offset + 8) == leastSignificantBits)) {
+                return offset;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * @return false if the table cannot grow any more
+     */
+    private boolean grow() {
+        final ByteBuffer oldSlots = slots;
+        final int oldCapacity = capacity;
+        if (oldCapacity == MAX_CAPACITY) {
+            return false;
+        }
+        try {
+            allocate(2 * oldCapacity);
+        } catch (final OutOfMemoryError e) {
+            LOG.warn("Unable to reserve " + 2L * oldCapacity * SLOT_BYTES + " bytes for issue IDs: " + e.getMessage());
+            return false;
+        }
+        for (int i = 0; i < oldCapacity; i++) {
+            final long mostSignificantBits = oldSlots.getLong(i * SLOT_BYTES);
+            if (mostSignificantBits != 0) {
+                final long leastSignificantBits = oldSlots.getLong(i * SLOT_BYTES + 8);
+                final int offset = find(mostSignificantBits, leastSignificantBits);
+                slots.putLong(offset, mostSignificantBits);
+                slots.putLong(offset + 8, leastSignificantBits);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of distinct IDs added
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return number of rejected additions of an ID added before
+     */
+    synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return bytes of the table outside the heap
+     */
+    synchronized long getMemoryBytes() {
+        return (long) capacity * SLOT_BYTES;
+    }
+}
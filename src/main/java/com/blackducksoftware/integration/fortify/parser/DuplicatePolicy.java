@@ -0,0 +1,17 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+/**
+ * Handling of rows whose issue ID was already passed to SSC during the same import. Hub reports can contain the same
+ * component, version, origin and vulnerability more than once, for example through origins whose names only differ in
+ * spaces.
+ */
+public enum DuplicatePolicy {
+    /**
+     * IDs are not tracked, every row is passed to SSC.
+     */
+    OFF,
+    /**
+     * Duplicates are counted and not passed to SSC, the first row of an ID wins.
+     */
+    SKIP
+}
@@ -0,0 +1,15 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import com.univocity.parsers.common.processor.RowProcessor;
+
+/**
+ * RowProcessor able to create independent copies of itself, so that parts of one report can be processed on
+ * several threads at once.
+ */
+interface ForkableRowProcessor extends RowProcessor {
+
+    /**
+     * @return new processor with its own state, sharing the output of this processor.
+     */
+    RowProcessor fork();
+}
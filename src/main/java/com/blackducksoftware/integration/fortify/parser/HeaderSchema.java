@@ -0,0 +1,158 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Column layout of a CSV report resolved from its header.
+ * Known columns are found by name, so reports of other Hub versions with additional or reordered columns are imported
+ * as well. Only the columns the issue ID is generated from are required, other missing columns leave their values
+ * empty. Resolved schemas are immutable and cached by header signature, repeated uploads of the same layout skip
+ * the resolution.
+ */
+final class HeaderSchema {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HeaderSchema.class);
+
+    /**
+     * Distinct header layouts kept, uploads usually come from a few Hub versions only.
+     */
+    private static final int MAX_CACHED_SCHEMAS = 32;
+
+    /**
+     * Columns of the issue ID, a report without them cannot be imported.
+     */
+    private static final Set<BlackDuckColumn> REQUIRED_COLUMNS = Collections.unmodifiableSet(EnumSet.of(BlackDuckColumn.COMPONENT_NAME,
+            BlackDuckColumn.VERSION, BlackDuckColumn.CHANNEL_VERSION_ORIGIN_ID, BlackDuckColumn.VULNERABILITY_ID));
+
+    private static final char SIGNATURE_SEPARATOR = '\u001f';
+
+    private static final Map<String, HeaderSchema> SCHEMAS = new LinkedHashMap<String, HeaderSchema>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, HeaderSchema> eldest) {
+            return size() > MAX_CACHED_SCHEMAS;
+        }
+    };
+
+    private final String[] headers;
+
+    private final int[] columnIndexes = new int[BlackDuckColumn.values().length];
+
+    private final Set<BlackDuckColumn> missingColumns = EnumSet.noneOf(BlackDuckColumn.class);
+
+    private final List<String> unknownHeaders = new ArrayList<>();
+
+    /**
+     * Converters of the custom attributes, copied for every parsing session.
+     */
+    private final AttributeMapping attributeMapping;
+
+    private final int[] selectedIndexes;
+
+    private HeaderSchema(final String[] headers, final Map<String, String> attributeColumns) {
+        this.headers = headers.clone();
+        for (final BlackDuckColumn column : BlackDuckColumn.values()) {
+            columnIndexes[column.ordinal()] = BlackDuckIssueMapper.indexOf(headers, column.getHeader());
+            if (columnIndexes[column.ordinal()] == BlackDuckIssueMapper.NOT_FOUND) {
+                missingColumns.add(column);
+            }
+        }
+        attributeMapping = AttributeMapping.forHeaders(headers, attributeColumns);
+        final int[] attributeIndexes = attributeMapping.getColumnIndexes();
+        for (int i = 0; i < headers.length; i++) {
+            final int index = i;
+            if (IntStream.of(columnIndexes).noneMatch(columnIndex -> columnIndex == index)
+                    && IntStream.of(attributeIndexes).noneMatch(attributeIndex -> attributeIndex == index)) {
+                unknownHeaders.add(headers[i]);
+            }
+        }
+        selectedIndexes = union(BlackDuckIssueMapper.selectedIndexes(columnIndexes), attributeIndexes);
+    }
+
+    /**
+     * Returns the cached schema of the header or resolves it.
+     *
+     * @param headers
+     *            CSV header
+     * @param attributeColumns
+     *            headers of columns replacing the default column of an attribute, keyed by attribute name
+     * @return schema of the header layout
+     */
+    static HeaderSchema resolve(final String[] headers, final Map<String, String> attributeColumns) {
+        final String signature = signature(headers, attributeColumns);
+        synchronized (SCHEMAS) {
+            final HeaderSchema schema = SCHEMAS.get(signature);
+            if (schema != null) {
+                return schema;
+            }
+        }
+        final HeaderSchema schema = new HeaderSchema(headers, attributeColumns);
+        if (!schema.unknownHeaders.isEmpty()) {
+            LOG.info("Columns not known to the parser are ignored: " + String.join(", ", schema.unknownHeaders));
+        }
+        synchronized (SCHEMAS) {
+            SCHEMAS.put(signature, schema);
+        }
+        return schema;
+    }
+
+    private static String signature(final String[] headers, final Map<String, String> attributeColumns) {
+        final StringBuilder signature = new StringBuilder();
+        for (final String header : headers) {
+            signature.append(header).append(SIGNATURE_SEPARATOR);
+        }
+        for (final Map.Entry<String, String> entry : attributeColumns.entrySet()) {
+            signature.append(SIGNATURE_SEPARATOR).append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return signature.toString();
+    }
+
+    private static int[] union(final int[] indexes, final int[] otherIndexes) {
+        return IntStream.concat(IntStream.of(indexes), IntStream.of(otherIndexes)).distinct().sorted().toArray();
+    }
+
+    String[] getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return index of every {@link BlackDuckColumn} by ordinal, {@link BlackDuckIssueMapper#NOT_FOUND} for missing
+     *         columns
+     */
+    int[] getColumnIndexes() {
+        return columnIndexes;
+    }
+
+    /**
+     * @return required columns missing in the header, empty if the report can be imported
+     */
+    Set<BlackDuckColumn> getMissingRequiredColumns() {
+        final Set<BlackDuckColumn> missingRequiredColumns = EnumSet.noneOf(BlackDuckColumn.class);
+        missingRequiredColumns.addAll(REQUIRED_COLUMNS);
+        missingRequiredColumns.retainAll(missingColumns);
+        return missingRequiredColumns;
+    }
+
+    /**
+     * @return converters of the custom attributes for one parsing session
+     */
+    AttributeMapping newAttributeMapping() {
+        return attributeMapping.copy();
+    }
+
+    /**
+     * @return indexes of the columns read by the parser, in header order
+     */
+    int[] getSelectedIndexes() {
+        return selectedIndexes.clone();
+    }
+}
@@ -0,0 +1,247 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission control of concurrent parseVulnerabilities callbacks of the plugin.
+ * SSC passes vulnerabilities to the handler on its own threads before the callback returns, so imports keep running
+ * on the calling thread and the scheduler only decides when they start. At most maxConcurrentImports imports run at
+ * once and their estimated memory must fit into the memory budget, an import larger than the whole budget runs
+ * alone. Waiting imports are queued per project and admitted round robin over the projects, one project uploading
+ * many versions at once does not delay the uploads of other projects.
+ */
+class ImportScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportScheduler.class);
+
+    /**
+     * Characters decoded by the reading stage of the pipelined parser at once.
+     */
+    private static final int DECODE_BLOCK_CHARS = 64 * 1024;
+
+    /**
+     * Row size assumed before the scan was read, Hub rows with a vulnerability description are about 1KB.
+     */
+    private static final long DEFAULT_ROW_BYTES = 1024;
+
+    /**
+     * Heap of a vulnerability record besides the values of its row: arrays of the recorded calls and boxed numbers.
+     */
+    private static final long RECORD_BYTES = 1024;
+
+    /**
+     * Heap of a pooled value besides its characters.
+     */
+    private static final long POOLED_STRING_BYTES = 64;
+
+    private final int maxConcurrentImports;
+
+    private final long memoryBudget;
+
+    private final ParserMetricsRegistry metricsRegistry;
+
+    /**
+     * Waiting imports by project, the project admitted last is moved to the end.
+     */
+    private final Map<String, Deque<Ticket>> queues = new LinkedHashMap<>();
+
+    private int runningImports;
+
+    private long reservedMemory;
+
+    private boolean stopped;
+
+    /**
+     * Admission of one import, closing it releases the reserved concurrency and memory.
+     */
+    final class Ticket implements AutoCloseable {
+
+        private final String project;
+
+        private final long memory;
+
+        private boolean admitted;
+
+        private Ticket(final String project, final long memory) {
+            this.project = project;
+            this.memory = memory;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    /**
+     * @param maxConcurrentImports
+     *            number of imports running at the same time
+     * @param memoryBudget
+     *            bytes of heap and direct memory the running imports may use together
+     * @param metricsRegistry
+     *            receives the time imports wait for admission
+     */
+    ImportScheduler(final int maxConcurrentImports, final long memoryBudget, final ParserMetricsRegistry metricsRegistry) {
+        this.maxConcurrentImports = maxConcurrentImports;
+        this.memoryBudget = memoryBudget;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Estimates heap and direct memory used by the import of a scan. Parsing streams the input, so the estimate covers
+     * the buffers of the configured parsing mode bounded by the input size, the vulnerabilities held by the batched
+     * emission and the replay cache, the string pools of the row processors and the off-heap table of the duplicate
+     * detection sized by the row count. Rows are assumed to have the average size of the scan.
+     *
+     * @param summary
+     *            summary of the scan, null if the scan was not read yet
+     * @param settings
+     *            parser settings of the import
+     * @return estimated bytes
+     */
+    static long estimateMemory(final BlackDuckScanSummary summary, final BlackDuckParserSettings settings) {
+        // decoded characters take two bytes
+        long buffers = 2L * (settings.getInputBufferSize() + settings.getMaxCharsPerRow());
+        if (settings.getParallelism() > 1) {
+            // raw bytes and decoded rows of the chunks in flight
+            buffers += 3L * settings.getChunkSize() * (settings.getParallelism() + settings.getMaxChunksInFlight());
+        } else if (settings.isPipelined()) {
+            buffers += 2L * DECODE_BLOCK_CHARS * settings.getDecodeQueueDepth();
+        }
+        final long rows = summary == null ? 0 : summary.getRowCount();
+        final long rowBytes = rows == 0 ? DEFAULT_ROW_BYTES : Math.max(1, summary.getByteCount() / rows);
+        if (summary != null) {
+            // a small scan never fills the buffers, its bytes and decoded characters are held at most
+            buffers = Math.min(buffers, 3 * summary.getByteCount());
+        }
+        // every row processor, one per parsing thread, has its own batch, string pool and record of the replay cache
+        final long processors = Math.max(1, settings.getParallelism());
+        final long recordBytes = RECORD_BYTES + 2 * rowBytes;
+        long records = settings.getEmissionBatchSize() > 1 ? settings.getEmissionBatchSize() : 0;
+        final long pooledStringBytes = POOLED_STRING_BYTES + 2 * rowBytes / BlackDuckColumn.values().length;
+        long estimate = buffers + processors * BlackDuckCsvRowProcessor.STRING_POOL_SIZE * pooledStringBytes;
+        if (settings.isReplayCache()) {
+            records++;
+            estimate += ReplayCache.BUFFER_SIZE;
+        }
+        estimate += processors * records * recordBytes;
+        if (settings.getDuplicatePolicy() != DuplicatePolicy.OFF) {
+            estimate += DuplicateIdSet.memoryFor(rows);
+        }
+        return estimate;
+    }
+
+    /**
+     * Waits until the import may start.
+     *
+     * @param project
+     *            fairness key of the import
+     * @param estimatedMemory
+     *            bytes of heap and direct memory the import is expected to use, see {@link #estimateMemory}
+     * @return admission to close when the import is done
+     * @throws IOException
+     *             if the scheduler is stopped or the thread is interrupted while waiting
+     */
+    Ticket acquire(final String project, final long estimatedMemory) throws IOException {
+        final long waitStart = System.nanoTime();
+        final Ticket ticket = new Ticket(project, estimatedMemory);
+        synchronized (this) {
+            if (stopped) {
+                throw new IOException("Import scheduler is stopped");
+            }
+            queues.computeIfAbsent(project, key -> new ArrayDeque<>()).add(ticket);
+            dispatch();
+            if (!ticket.admitted) {
+                LOG.debug("Import of project " + project + " queued, " + runningImports + " imports running");
+            }
+            try {
+                while (!ticket.admitted) {
+                    if (stopped) {
+                        dequeue(ticket);
+                        throw new IOException("Import scheduler is stopped");
+                    }
+                    wait();
+                }
+            } catch (final InterruptedException e) {
+                if (ticket.admitted) {
+                    release(ticket);
+                } else {
+                    dequeue(ticket);
+                    dispatch();
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for import admission");
+            }
+        }
+        metricsRegistry.recordTime(ParserTimer.QUEUE_WAIT, System.nanoTime() - waitStart);
+        return ticket;
+    }
+
+    private synchronized void release(final Ticket ticket) {
+        runningImports--;
+        reservedMemory -= ticket.memory;
+        dispatch();
+    }
+
+    /**
+     * Admits waiting imports in round robin order of their projects. Stops at the first project whose next import
+     * does not fit, so that large imports are not starved by smaller ones.
+     */
+    private void dispatch() {
+        boolean admitted = false;
+        while (!queues.isEmpty()) {
+            final Map.Entry<String, Deque<Ticket>> next = queues.entrySet().iterator().next();
+            final Ticket ticket = next.getValue().peek();
+            if (runningImports > 0 && (runningImports >= maxConcurrentImports || reservedMemory + ticket.memory > memoryBudget)) {
+                break;
+            }
+            next.getValue().poll();
+            queues.remove(next.getKey());
+            if (!next.getValue().isEmpty()) {
+                // next import of the project waits behind the other projects
+                queues.put(next.getKey(), next.getValue());
+            }
+            ticket.admitted = true;
+            runningImports++;
+            reservedMemory += ticket.memory;
+            admitted = true;
+        }
+        if (admitted) {
+            notifyAll();
+        }
+    }
+
+    private void dequeue(final Ticket ticket) {
+        final Deque<Ticket> queue = queues.get(ticket.project);
+        if (queue != null) {
+            queue.remove(ticket);
+            if (queue.isEmpty()) {
+                queues.remove(ticket.project);
+            }
+        }
+    }
+
+    synchronized int getRunningImports() {
+        return runningImports;
+    }
+
+    synchronized int getQueuedImports() {
+        return queues.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Fails waiting imports and rejects new ones, running imports complete.
+     */
+    synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+}
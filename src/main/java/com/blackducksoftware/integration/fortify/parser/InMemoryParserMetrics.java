@@ -0,0 +1,159 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Parser metrics kept in memory: an HDR histogram per timer and a counter per event.
+ * Used by the plugin as JMX MBean, tests can read the recorded values directly.
+ */
+public class InMemoryParserMetrics implements ParserMetricsRegistry, ParserMetricsMXBean {
+
+    /**
+     * Histograms resize automatically, two significant digits keep them small.
+     */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Map<ParserTimer, ConcurrentHistogram> histograms = new EnumMap<>(ParserTimer.class);
+
+    private final Map<ParserCounter, LongAdder> counters = new EnumMap<>(ParserCounter.class);
+
+    public InMemoryParserMetrics() {
+        for (final ParserTimer timer : ParserTimer.values()) {
+            histograms.put(timer, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+        }
+        for (final ParserCounter counter : ParserCounter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+    }
+
+    @Override
+    public void recordTime(final ParserTimer timer, final long nanos) {
+        histograms.get(timer).recordValue(Math.max(nanos, 0));
+    }
+
+    @Override
+    public void increment(final ParserCounter counter, final long delta) {
+        counters.get(counter).add(delta);
+    }
+
+    /**
+     * @param timer
+     *            timer
+     * @return copy of the histogram of recorded times in nanoseconds
+     */
+    public Histogram getHistogram(final ParserTimer timer) {
+        return histograms.get(timer).copy();
+    }
+
+    public long getCount(final ParserCounter counter) {
+        return counters.get(counter).sum();
+    }
+
+    @Override
+    public long getRows() {
+        return getCount(ParserCounter.ROWS);
+    }
+
+    @Override
+    public long getBytes() {
+        return getCount(ParserCounter.BYTES);
+    }
+
+    /**
+     * @return rows per second of import time
+     */
+    @Override
+    public double getRowsPerSecond() {
+        return perSecond(getRows());
+    }
+
+    /**
+     * @return bytes per second of import time
+     */
+    @Override
+    public double getBytesPerSecond() {
+        return perSecond(getBytes());
+    }
+
+    @Override
+    public long getDateParseFailures() {
+        return getCount(ParserCounter.DATE_PARSE_FAILURES);
+    }
+
+    @Override
+    public long getHeaderValidationFailures() {
+        return getCount(ParserCounter.HEADER_VALIDATION_FAILURES);
+    }
+
+    @Override
+    public long getQuarantinedRows() {
+        return getCount(ParserCounter.QUARANTINED_ROWS);
+    }
+
+    @Override
+    public long getDuplicateRows() {
+        return getCount(ParserCounter.DUPLICATE_ROWS);
+    }
+
+    @Override
+    public long getReplayedScans() {
+        return getCount(ParserCounter.REPLAYED_SCANS);
+    }
+
+    @Override
+    public TimerStatistics getImportTime() {
+        return getStatistics(ParserTimer.IMPORT);
+    }
+
+    @Override
+    public TimerStatistics getQueueWaitTime() {
+        return getStatistics(ParserTimer.QUEUE_WAIT);
+    }
+
+    @Override
+    public TimerStatistics getTokenizeTime() {
+        return getStatistics(ParserTimer.TOKENIZE);
+    }
+
+    @Override
+    public TimerStatistics getMapTime() {
+        return getStatistics(ParserTimer.MAP);
+    }
+
+    @Override
+    public TimerStatistics getDateConversionTime() {
+        return getStatistics(ParserTimer.DATE_CONVERSION);
+    }
+
+    @Override
+    public TimerStatistics getIssueIdTime() {
+        return getStatistics(ParserTimer.ISSUE_ID);
+    }
+
+    @Override
+    public TimerStatistics getHandlerTime() {
+        return getStatistics(ParserTimer.HANDLER);
+    }
+
+    public TimerStatistics getStatistics(final ParserTimer timer) {
+        return new TimerStatistics(histograms.get(timer).copy());
+    }
+
+    @Override
+    public void reset() {
+        histograms.values().forEach(Histogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    private double perSecond(final long count) {
+        final Histogram importTime = histograms.get(ParserTimer.IMPORT).copy();
+        final double seconds = importTime.getMean() * importTime.getTotalCount() / TimeUnit.SECONDS.toNanos(1);
+        return seconds > 0 ? count / seconds : 0;
+    }
+}
@@ -9,31 +9,44 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 
 /**
  * Makes univocity CSV parser closeable.
  */
 class InputStreamCsvParser extends CsvParser implements AutoCloseable {
+    private final CsvParserSettings settings;
+
     private final InputStream inputStream;
 
+    /**
+     * Limits of values, null to pass the input to the tokenizer unchanged.
+     */
+    private final BlackDuckParserSettings limits;
+
     public InputStreamCsvParser(final CsvParserSettings settings, final InputStream inputStream) {
+        this(settings, inputStream, null);
+    }
+
+    InputStreamCsvParser(final CsvParserSettings settings, final InputStream inputStream, final BlackDuckParserSettings limits) {
         super(settings);
+        this.settings = settings;
         this.inputStream = inputStream;
+        this.limits = limits;
     }
 
     void parse() throws ScanParsingException, IOException {
         try (
             final InputStreamReader reader = new InputStreamReader(inputStream, "UTF-8");
-            final BufferedReader bufferedReader = new BufferedReader(reader);
+            final Reader bufferedReader = limits == null ? new BufferedReader(reader) : limits.boundColumns(reader);
         ) {
-            parse(bufferedReader);
+            parse(limits == null ? bufferedReader : ColumnSelection.selectColumns(settings, bufferedReader, settings.getRowProcessor(), limits));
         } catch (final UnsupportedEncodingException e) {
             final String message = "Unable to create buffered reader from stream!";
             throw new ScanParsingException(message, e);
         } catch (TextParsingException e) {
-            final String message = "CSV parsing error: " + e.getCause().getMessage();
-            throw new ScanParsingException(message, e);
+            throw ParsingFailures.toScanParsingException(e);
         }
     }
 
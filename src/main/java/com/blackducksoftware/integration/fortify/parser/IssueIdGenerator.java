@@ -0,0 +1,131 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Generates issue IDs: name based (version 3) UUIDs of "componentName:version:channelVersionOriginId:vulnerabilityId"
+ * with spaces removed from the first three values, encoded in UTF-8.
+ * Result is the same as UUID.nameUUIDFromBytes of that string, but the digest and the buffers are reused and
+ * no intermediate strings are created. Instances are not thread-safe, use {@link #forCurrentThread()}.
+ */
+final class IssueIdGenerator {
+
+    private static final ThreadLocal<IssueIdGenerator> GENERATORS = ThreadLocal.withInitial(IssueIdGenerator::new);
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final String NULL = "null";
+
+    private final MessageDigest digest = BlackDuckUtils.newMD5Digest();
+
+    private final char[] uuidChars = new char[36];
+
+    private byte[] buffer = new byte[256];
+
+    private int length;
+
+    /**
+     * Bits of the last generated ID, as returned by UUID.getMostSignificantBits and UUID.getLeastSignificantBits.
+     */
+    private long mostSignificantBits;
+
+    private long leastSignificantBits;
+
+    private IssueIdGenerator() {
+    }
+
+    static IssueIdGenerator forCurrentThread() {
+        return GENERATORS.get();
+    }
+
+    String generate(final String componentName, final String version, final String channelVersionOriginId, final String vulnerabilityId) {
+        length = 0;
+        append(componentName, true);
+        append(':');
+        append(version, true);
+        append(':');
+        append(channelVersionOriginId, true);
+        append(':');
+        append(vulnerabilityId, false);
+        digest.update(buffer, 0, length);
+        final byte[] md5 = digest.digest();
+        // same bits as UUID.nameUUIDFromBytes
+        md5[6] &= 0x0f;
+        md5[6] |= 0x30;
+        md5[8] &= 0x3f;
+        md5[8] |= 0x80;
+        mostSignificantBits = toLong(md5, 0);
+        leastSignificantBits = toLong(md5, 8);
+        return format(md5);
+    }
+
+    long getMostSignificantBits() {
+        return mostSignificantBits;
+    }
+
+    long getLeastSignificantBits() {
+        return leastSignificantBits;
+    }
+
+    private static long toLong(final byte[] bytes, final int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xff);
+        }
+        return value;
+    }
+
+    private void append(final String value, final boolean removeSpaces) {
+        final String text = value == null ? NULL : value;
+        final int textLength = text.length();
+        for (int i = 0; i < textLength; i++) {
+            final char c = text.charAt(i);
+            if (c == ' ' && removeSpaces) {
+                continue;
+            }
+            if (c < 0x80) {
+                append((byte) c);
+            } else if (c < 0x800) {
+                append((byte) (0xc0 | (c >> 6)));
+                append((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < textLength && Character.isLowSurrogate(text.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                append((byte) (0xf0 | (codePoint >> 18)));
+                append((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                append((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                append((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate is replaced the same way String.getBytes does
+                append('?');
+            } else {
+                append((byte) (0xe0 | (c >> 12)));
+                append((byte) (0x80 | ((c >> 6) & 0x3f)));
+                append((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private void append(final char c) {
+        append((byte) c);
+    }
+
+    private void append(final byte b) {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[length++] = b;
+    }
+
+    private String format(final byte[] md5) {
+        int position = 0;
+        for (int i = 0; i < 16; i++) {
+            if (i == 4 || i == 6 || i == 8 || i == 10) {
+                uuidChars[position++] = '-';
+            }
+            uuidChars[position++] = HEX_DIGITS[(md5[i] >> 4) & 0x0f];
+            uuidChars[position++] = HEX_DIGITS[md5[i] & 0x0f];
+        }
+        return new String(uuidChars);
+    }
+}
@@ -0,0 +1,183 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader decoding UTF-8 straight from memory mapped regions of the file into the buffer of the caller.
+ * Unlike InputStreamReader wrapped in BufferedReader, bytes are not copied to heap buffers before decoding and
+ * repeated reads of the same file are served by the OS page cache. The file is mapped window by window, so files
+ * larger than 2GB can be read as well. Each window is unmapped before the next one is mapped and when the reader is
+ * closed, so only one window per reader stays mapped instead of every window until the buffers are collected.
+ * Malformed input is replaced like InputStreamReader does.
+ */
+class MappedFileReader extends Reader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileReader.class);
+
+    /**
+     * Releases the mapping of a buffer, does nothing if the JVM does not allow it and the mapping is released when the
+     * buffer is collected.
+     */
+    private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+    /**
+     * Largest UTF-8 sequence, a window with fewer remaining bytes may end in the middle of a character.
+     */
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final long windowSize;
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private MappedByteBuffer window;
+
+    /**
+     * File position of the first byte of the current window.
+     */
+    private long windowPosition;
+
+    /**
+     * Low surrogate of a pair decoded for a single char read.
+     */
+    private int pendingChar = -1;
+
+    private boolean endOfInput;
+
+    /**
+     * @param channel
+     *            file to read, closed with the reader
+     * @param windowSize
+     *            number of bytes mapped at once
+     */
+    MappedFileReader(final FileChannel channel, final long windowSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = Math.max(windowSize, MAX_BYTES_PER_CHAR);
+    }
+
+    @Override
+    public int read(final char[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (pendingChar >= 0) {
+            buffer[offset] = (char) pendingChar;
+            pendingChar = -1;
+            return 1;
+        }
+        if (length == 1) {
+            // a supplementary character does not fit into one char, keep the second half for the next read
+            final char[] pair = new char[2];
+            final int count = read(pair, 0, 2);
+            if (count == 2) {
+                pendingChar = pair[1];
+            }
+            if (count > 0) {
+                buffer[offset] = pair[0];
+            }
+            return count < 0 ? -1 : 1;
+        }
+        final CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        while (out.position() == offset && !endOfInput) {
+            if (window == null || (window.remaining() < MAX_BYTES_PER_CHAR && windowPosition + window.limit() < size)) {
+                mapNextWindow();
+            }
+            final boolean lastWindow = windowPosition + window.limit() == size;
+            final CoderResult result = decoder.decode(window, out, lastWindow);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (lastWindow && result.isUnderflow()) {
+                decoder.flush(out);
+                endOfInput = true;
+            }
+        }
+        final int count = out.position() - offset;
+        return count == 0 ? -1 : count;
+    }
+
+    private void mapNextWindow() throws IOException {
+        if (window != null) {
+            // bytes of an incomplete character are mapped again at the start of the next window
+            windowPosition += window.position();
+            unmapWindow();
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowPosition, Math.min(windowSize, size - windowPosition));
+    }
+
+    private void unmapWindow() {
+        final MappedByteBuffer mapped = window;
+        // the window must not be read once unmapped
+        window = null;
+        UNMAPPER.accept(mapped);
+    }
+
+    @Override
+    public void close() throws IOException {
+        endOfInput = true;
+        if (window != null) {
+            unmapWindow();
+        }
+        channel.close();
+    }
+
+    /**
+     * Resolves Unsafe.invokeCleaner of Java 9 and later, the cleaner of the direct buffer on Java 8.
+     */
+    private static Consumer<ByteBuffer> unmapper() {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // Java 8
+        }
+        try {
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                final Object bufferCleaner = invoke(cleaner, buffer);
+                // an empty mapping has no cleaner
+                if (bufferCleaner != null) {
+                    invoke(clean, bufferCleaner);
+                }
+            };
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            LOG.info("Mapped windows cannot be unmapped explicitly, they are released when collected: " + e);
+            return buffer -> {
+            };
+        }
+    }
+
+    private static Object invoke(final Method method, final Object target, final Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to unmap window", e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+import com.fortify.plugin.spi.VulnerabilityAttribute;
+
+/**
+ * VulnerabilityHandler that discards everything, for the parser warm-up and benchmarks measuring the parser only.
+ * Number of completed vulnerabilities is kept to make sure the work is not optimized away.
+ */
+class NoOpVulnerabilityHandler implements VulnerabilityHandler {
+
+    private final NoOpBuilder builder = new NoOpBuilder();
+
+    private long completed;
+
+    @Override
+    public StaticVulnerabilityBuilder startStaticVulnerability(final String instanceId) {
+        return builder;
+    }
+
+    long getCompleted() {
+        return completed;
+    }
+
+    private class NoOpBuilder implements StaticVulnerabilityBuilder {
+
+        @Override
+        public void completeVulnerability() {
+            completed++;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setAccuracy(final Float accuracy) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setAnalyzer(final String analyzer) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setEngineType(final String engineType) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setCategory(final String category) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSubCategory(final String subCategory) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setMappedCategory(final String mappedCategory) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setConfidence(final Float confidence) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setPriority(final Priority priority) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setImpact(final Float impact) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilityAbstract(final String vulnerabilityAbstract) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilityRecommendation(final String vulnerabilityRecommendation) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setKingdom(final String kingdom) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setLikelihood(final Float likelihood) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilityType(final String vulnerabilityType) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setVulnerabilitySubtype(final String vulnerabilitySubtype) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setProbability(final Float probability) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setRuleGuid(final String ruleGuid) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSeverity(final Float severity) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setDecimalCustomAttributeValue(final VulnerabilityAttribute vulnerabilityAttribute, final BigDecimal attributeValue) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setStringCustomAttributeValue(final VulnerabilityAttribute vulnerabilityAttribute, final String attributeValue) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setDateCustomAttributeValue(final VulnerabilityAttribute vulnerabilityAttribute, final Date attributeValue) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setClassName(final String className) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setShortFileName(final String shortFileName) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setFileName(final String fileName) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setFunctionName(final String functionName) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setLineNumber(final Integer lineNumber) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSourceFile(final String sourceFile) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSourceLine(final Integer sourceLine) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setPackageName(final String packageName) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSink(final String sink) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSinkContext(final String sinkContext) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSource(final String source) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setSourceContext(final String sourceContext) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setMinVirtualCallConfidence(final Float minVirtualCallConfidence) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setRemediationConstant(final Float remediationConstant) {
+            return this;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder setTaintFlag(final String taintFlag) {
+            return this;
+        }
+    }
+}
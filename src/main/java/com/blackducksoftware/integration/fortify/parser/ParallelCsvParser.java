@@ -0,0 +1,232 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.univocity.parsers.common.ParsingContext;
+import com.univocity.parsers.common.TextParsingException;
+import com.univocity.parsers.common.processor.RowListProcessor;
+import com.univocity.parsers.common.processor.RowProcessor;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+/**
+ * Parses one CSV report on several threads.
+ * The input is split into chunks of whole records which are tokenized on the fork-join pool of the settings, shared by
+ * the imports of the plugin, or on a pool of the report if there is none. Parsed rows are passed to
+ * the RowProcessor on the calling thread in report order, at most maxChunksInFlight chunks are kept in memory.
+ * If the VulnerabilityHandler is known to be thread-safe and the processor can be forked, every chunk is processed by
+ * its own processor copy directly on the pool instead.
+ */
+class ParallelCsvParser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelCsvParser.class);
+
+    private final BlackDuckParserSettings settings;
+
+    ParallelCsvParser(final BlackDuckParserSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * @return pool of parallelism threads for the chunks of parallel parsing
+     */
+    static ForkJoinPool newPool(final int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("blackduck-parser-parallel-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    void parse(final InputStream inputStream, final RowProcessor rowProcessor) throws ScanParsingException, IOException {
+        final CsvChunkSplitter splitter = new CsvChunkSplitter(inputStream, settings.getChunkSize(), settings.getMaxRecordBytes());
+        final byte[] headerRecord = splitter.nextRecord();
+        final String[] headers = parseHeaders(headerRecord, settings);
+        final DetachedParsingContext context = new DetachedParsingContext(headers);
+        final Integer[] selectedIndexes = ColumnSelection.selectedIndexes(headers, rowProcessor);
+        final ForkableRowProcessor forkableProcessor = (settings.isThreadSafeHandler() && rowProcessor instanceof ForkableRowProcessor)
+                ? (ForkableRowProcessor) rowProcessor : null;
+        LOG.debug("Parsing with " + settings.getParallelism() + " threads, " + (forkableProcessor == null ? "ordered" : "concurrent") + " output");
+
+        final ForkJoinPool sharedPool = settings.getParsingPool();
+        final ForkJoinPool pool = sharedPool != null ? sharedPool : newPool(settings.getParallelism());
+        final Deque<Future<List<String[]>>> inFlight = new ArrayDeque<>();
+        try {
+            rowProcessor.processStarted(context);
+            if (headers != null) {
+                byte[] chunk;
+                while (!context.isStopped() && (chunk = splitter.nextChunk()) != null) {
+                    if (inFlight.size() >= settings.getMaxChunksInFlight()) {
+                        emit(inFlight.removeFirst(), rowProcessor, context);
+                    }
+                    final RowProcessor chunkProcessor = forkableProcessor == null ? null : forkableProcessor.fork();
+                    inFlight.addLast(pool.submit(new ChunkTask(chunk, headerRecord, selectedIndexes, chunkProcessor, settings)));
+                }
+                while (!inFlight.isEmpty()) {
+                    emit(inFlight.removeFirst(), rowProcessor, context);
+                }
+            }
+            if (splitter.isOversized() && !context.isStopped()) {
+                LOG.warn("CSV record larger than " + settings.getMaxRecordBytes() + " bytes, parsing the rest of the report on a single thread");
+                parseSequentially(headers == null ? splitter.remainder() : withHeader(headerRecord, splitter.remainder()), selectedIndexes,
+                        rowProcessor, context);
+            }
+            rowProcessor.processEnded(context);
+        } finally {
+            for (final Future<List<String[]>> future : inFlight) {
+                future.cancel(true);
+            }
+            if (pool != sharedPool) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private void emit(final Future<List<String[]>> future, final RowProcessor rowProcessor, final DetachedParsingContext context)
+            throws ScanParsingException, IOException {
+        final List<String[]> rows = await(future);
+        for (final String[] row : rows) {
+            if (context.isStopped()) {
+                return;
+            }
+            rowProcessor.rowProcessed(row, context);
+            context.recordProcessed();
+        }
+    }
+
+    private List<String[]> await(final Future<List<String[]>> future) throws ScanParsingException, IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            throw ParsingFailures.interrupted(e);
+        } catch (final ExecutionException e) {
+            throw ParsingFailures.rethrow(e);
+        }
+    }
+
+    /**
+     * Parses input the splitter did not buffer, rows go to the processor on the calling thread.
+     *
+     * @param remainder
+     *            input starting with the header record
+     * @param selectedIndexes
+     *            columns read by the row processor, null to parse all
+     */
+    private void parseSequentially(final InputStream remainder, final Integer[] selectedIndexes, final RowProcessor rowProcessor,
+            final DetachedParsingContext context) throws ScanParsingException {
+        final CsvParserSettings parserSettings = settings.newCsvParserSettings();
+        parserSettings.setHeaderExtractionEnabled(true);
+        ColumnSelection.select(parserSettings, selectedIndexes);
+        parserSettings.setRowProcessor(new RowProcessor() {
+            @Override
+            public void processStarted(final ParsingContext parsingContext) {
+                // started by the parallel parser
+            }
+
+            @Override
+            public void rowProcessed(final String[] row, final ParsingContext parsingContext) {
+                rowProcessor.rowProcessed(row, context);
+                context.recordProcessed();
+                if (context.isStopped()) {
+                    parsingContext.stop();
+                }
+            }
+
+            @Override
+            public void processEnded(final ParsingContext parsingContext) {
+                // ended by the parallel parser
+            }
+        });
+        try {
+            new CsvParser(parserSettings).parse(reader(remainder, settings));
+        } catch (final TextParsingException e) {
+            throw ParsingFailures.toScanParsingException(e);
+        }
+    }
+
+    private static String[] parseHeaders(final byte[] headerRecord, final BlackDuckParserSettings settings) {
+        if (headerRecord == null) {
+            return null;
+        }
+        final List<String[]> rows = new CsvParser(settings.newCsvParserSettings()).parseAll(reader(new ByteArrayInputStream(headerRecord), settings));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * @return content with the header record in front, for the tokenizer to extract the header and apply the column
+     *         selection from the first row on
+     */
+    private static InputStream withHeader(final byte[] headerRecord, final InputStream content) {
+        return new SequenceInputStream(new ByteArrayInputStream(headerRecord), content);
+    }
+
+    private static Reader reader(final InputStream content, final BlackDuckParserSettings settings) {
+        return settings.boundColumns(new InputStreamReader(content, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tokenizes one chunk. Rows are returned to the caller unless a processor of its own is provided.
+     */
+    private static class ChunkTask implements Callable<List<String[]>> {
+
+        private final byte[] chunk;
+
+        /**
+         * Header record of the report, parsed again in front of every chunk.
+         */
+        private final byte[] headerRecord;
+
+        /**
+         * Columns read by the row processor, null to parse all.
+         */
+        private final Integer[] selectedIndexes;
+
+        private final RowProcessor chunkProcessor;
+
+        private final BlackDuckParserSettings settings;
+
+        ChunkTask(final byte[] chunk, final byte[] headerRecord, final Integer[] selectedIndexes, final RowProcessor chunkProcessor,
+                final BlackDuckParserSettings settings) {
+            this.chunk = chunk;
+            this.headerRecord = headerRecord;
+            this.selectedIndexes = selectedIndexes;
+            this.chunkProcessor = chunkProcessor;
+            this.settings = settings;
+        }
+
+        @Override
+        public List<String[]> call() {
+            final CsvParserSettings parserSettings = settings.newCsvParserSettings();
+            parserSettings.setHeaderExtractionEnabled(true);
+            ColumnSelection.select(parserSettings, selectedIndexes);
+            if (chunkProcessor != null) {
+                parserSettings.setRowProcessor(chunkProcessor);
+                new CsvParser(parserSettings).parse(reader(withHeader(headerRecord, new ByteArrayInputStream(chunk)), settings));
+                return Collections.emptyList();
+            }
+            final RowListProcessor rowListProcessor = new RowListProcessor();
+            parserSettings.setRowProcessor(rowListProcessor);
+            new CsvParser(parserSettings).parse(reader(withHeader(headerRecord, new ByteArrayInputStream(chunk)), settings));
+            return rowListProcessor.getRows();
+        }
+    }
+}
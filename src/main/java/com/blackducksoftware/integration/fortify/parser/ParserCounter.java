@@ -0,0 +1,35 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+/**
+ * Counted events of the scan import.
+ */
+public enum ParserCounter {
+    /**
+     * Rows passed to SSC as vulnerabilities.
+     */
+    ROWS,
+    /**
+     * Bytes of CSV content of imported scans.
+     */
+    BYTES,
+    /**
+     * Non empty date values which could not be parsed.
+     */
+    DATE_PARSE_FAILURES,
+    /**
+     * Scans rejected because of an invalid CSV header.
+     */
+    HEADER_VALIDATION_FAILURES,
+    /**
+     * Rows skipped by the fault tolerant import.
+     */
+    QUARANTINED_ROWS,
+    /**
+     * Rows repeating the issue ID of a previous row of the same import.
+     */
+    DUPLICATE_ROWS,
+    /**
+     * Scans imported from the replay cache without parsing the report.
+     */
+    REPLAYED_SCANS
+}
@@ -0,0 +1,41 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+/**
+ * JMX view of the parser metrics, registered by the plugin on start.
+ */
+public interface ParserMetricsMXBean {
+
+    long getRows();
+
+    long getBytes();
+
+    double getRowsPerSecond();
+
+    double getBytesPerSecond();
+
+    long getDateParseFailures();
+
+    long getHeaderValidationFailures();
+
+    long getQuarantinedRows();
+
+    long getDuplicateRows();
+
+    long getReplayedScans();
+
+    TimerStatistics getImportTime();
+
+    TimerStatistics getQueueWaitTime();
+
+    TimerStatistics getTokenizeTime();
+
+    TimerStatistics getMapTime();
+
+    TimerStatistics getDateConversionTime();
+
+    TimerStatistics getIssueIdTime();
+
+    TimerStatistics getHandlerTime();
+
+    void reset();
+}
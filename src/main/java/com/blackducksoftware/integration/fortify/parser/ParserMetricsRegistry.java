@@ -0,0 +1,25 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+/**
+ * Receives timings and counts of the scan import. Implementations must be thread safe, parallel parsing records
+ * from several threads.
+ */
+public interface ParserMetricsRegistry {
+
+    /**
+     * Registry ignoring all records, the row processor does not even read the clock when it is used.
+     */
+    ParserMetricsRegistry NO_OP = new ParserMetricsRegistry() {
+        @Override
+        public void recordTime(final ParserTimer timer, final long nanos) {
+        }
+
+        @Override
+        public void increment(final ParserCounter counter, final long delta) {
+        }
+    };
+
+    void recordTime(ParserTimer timer, long nanos);
+
+    void increment(ParserCounter counter, long delta);
+}
@@ -0,0 +1,37 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+/**
+ * Timed steps of the scan import, recorded in nanoseconds.
+ */
+public enum ParserTimer {
+    /**
+     * Whole parseVulnerabilities callback after the import was admitted by the import scheduler.
+     */
+    IMPORT,
+
+    /**
+     * Time the parseVulnerabilities callback waited for admission by the import scheduler.
+     */
+    QUEUE_WAIT,
+    /**
+     * Time spent in the CSV parser between two rows passed to the row processor.
+     */
+    TOKENIZE,
+    /**
+     * Copying row values into BlackDuckIssue.
+     */
+    MAP,
+    /**
+     * Conversion of the date columns of a row.
+     */
+    DATE_CONVERSION,
+    /**
+     * Computation of the issue ID of a row.
+     */
+    ISSUE_ID,
+    /**
+     * VulnerabilityHandler and StaticVulnerabilityBuilder calls for a row, including passing a full batch on when the
+     * emission is batched.
+     */
+    HANDLER
+}
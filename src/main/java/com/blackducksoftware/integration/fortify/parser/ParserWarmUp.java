@@ -0,0 +1,83 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.plugin.spi.VulnerabilityAttribute.AttrType;
+
+/**
+ * Synthetic import run once when the plugin starts, so that the first upload after an SSC restart does not pay for
+ * class loading and initialization of the shared parser infrastructure: CSV tokenizer and column selection, cached
+ * header schema of the Hub report layout, generated issue mapping, attribute mapping, issue ID digest, the date and
+ * CVSS converters and the vulnerability building of BlackDuckCsvRowProcessor. Vulnerabilities go to a
+ * {@link NoOpVulnerabilityHandler}, nothing is passed to SSC or recorded in the metrics.
+ */
+final class ParserWarmUp {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParserWarmUp.class);
+
+    private static final int ROWS = 16;
+
+    private ParserWarmUp() {
+    }
+
+    /**
+     * Parses a generated report with all columns of the Hub report layout. Failures are logged, they never prevent
+     * the plugin from starting.
+     *
+     * @param settings
+     *            settings of the plugin
+     */
+    static void run(final BlackDuckParserSettings settings) {
+        final long start = System.nanoTime();
+        final BlackDuckParserSettings warmUpSettings = new BlackDuckParserSettings();
+        warmUpSettings.setAttributeColumns(settings.getAttributeColumns());
+        warmUpSettings.setMaxCharsPerColumn(settings.getMaxCharsPerColumn());
+        warmUpSettings.setMaxCharsPerRow(settings.getMaxCharsPerRow());
+        try {
+            final NoOpVulnerabilityHandler vulnerabilityHandler = new NoOpVulnerabilityHandler();
+            new BlackDuckCSVParser(warmUpSettings).parseIssues(new ByteArrayInputStream(report()),
+                    new BlackDuckCsvRowProcessor(vulnerabilityHandler, warmUpSettings, null, 0));
+            LOG.info("Parser warmed up with " + vulnerabilityHandler.getCompleted() + " vulnerabilities in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (final ScanParsingException | IOException | RuntimeException e) {
+            LOG.warn("Parser warm-up failed: " + e.getMessage());
+        }
+    }
+
+    private static byte[] report() {
+        final StringBuilder report = new StringBuilder();
+        for (final BlackDuckColumn column : BlackDuckColumn.values()) {
+            report.append(column.ordinal() == 0 ? "" : ",").append(column.getHeader());
+        }
+        report.append('\n');
+        for (int row = 0; row < ROWS; row++) {
+            for (final BlackDuckColumn column : BlackDuckColumn.values()) {
+                report.append(column.ordinal() == 0 ? "" : ",").append(value(column, row));
+            }
+            report.append('\n');
+        }
+        return report.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String value(final BlackDuckColumn column, final int row) {
+        if (column == BlackDuckColumn.SCAN_DATE) {
+            return "2018-02-22 19:20:33.700";
+        }
+        final AttrType type = column.getAttribute() == null ? AttrType.STRING : column.getAttribute().attributeType();
+        switch (type) {
+        case DATE:
+            return "2018-02-22";
+        case DECIMAL:
+            return (row % 10) + ".5";
+        default:
+            return column == BlackDuckColumn.SEVERITY ? "HIGH" : "warm-up " + row;
+        }
+    }
+}
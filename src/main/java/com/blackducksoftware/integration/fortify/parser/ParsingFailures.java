@@ -0,0 +1,45 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.univocity.parsers.common.TextParsingException;
+
+/**
+ * Translates failures of parsing done on other threads to the exceptions declared by the parser API.
+ */
+final class ParsingFailures {
+
+    private ParsingFailures() {
+    }
+
+    static ScanParsingException toScanParsingException(final TextParsingException e) {
+        final Throwable cause = e.getCause() == null ? e : e.getCause();
+        return new ScanParsingException("CSV parsing error: " + cause.getMessage(), e);
+    }
+
+    static ScanParsingException interrupted(final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return new ScanParsingException("CSV parsing interrupted", e);
+    }
+
+    /**
+     * Rethrows the failure of a background parsing task.
+     */
+    static ScanParsingException rethrow(final ExecutionException e) throws ScanParsingException, IOException {
+        final Throwable cause = e.getCause();
+        if (cause instanceof TextParsingException) {
+            throw toScanParsingException((TextParsingException) cause);
+        } else if (cause instanceof ScanParsingException) {
+            throw (ScanParsingException) cause;
+        } else if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new ScanParsingException("CSV parsing error: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,49 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stall times of the pipelined parser stages. A stage stalls when its input buffer is empty or its output buffer is
+ * full, so the stage with the least stall time is the bottleneck.
+ */
+public class PipelineStatistics {
+
+    private final long readerStallNanos;
+
+    private final long tokenizerStallNanos;
+
+    private final long builderStallNanos;
+
+    PipelineStatistics(final long readerStallNanos, final long tokenizerStallNanos, final long builderStallNanos) {
+        this.readerStallNanos = readerStallNanos;
+        this.tokenizerStallNanos = tokenizerStallNanos;
+        this.builderStallNanos = builderStallNanos;
+    }
+
+    /**
+     * @return time the I/O and decoding stage waited for the tokenizer, in milliseconds
+     */
+    public long getReaderStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readerStallNanos);
+    }
+
+    /**
+     * @return time the tokenizer stage waited for input or for the builder, in milliseconds
+     */
+    public long getTokenizerStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tokenizerStallNanos);
+    }
+
+    /**
+     * @return time the mapping and building stage waited for parsed rows, in milliseconds
+     */
+    public long getBuilderStallMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(builderStallNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "reader stall " + getReaderStallMillis() + " ms, tokenizer stall " + getTokenizerStallMillis() + " ms, builder stall "
+                + getBuilderStallMillis() + " ms";
+    }
+}
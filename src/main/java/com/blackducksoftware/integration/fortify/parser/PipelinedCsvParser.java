@@ -0,0 +1,255 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fortify.plugin.api.ScanParsingException;
+import com.univocity.parsers.common.ParsingContext;
+import com.univocity.parsers.common.processor.RowProcessor;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+/**
+ * Parses one CSV report in three stages running concurrently:
+ * <ol>
+ * <li>I/O and UTF-8 decoding</li>
+ * <li>CSV tokenizing</li>
+ * <li>mapping and vulnerability building, done by the RowProcessor on the calling thread</li>
+ * </ol>
+ * Stages are connected by bounded buffers, a slow stage blocks the previous one instead of letting data pile up in
+ * memory. Time each stage spends blocked is reported by {@link #getStatistics()}.
+ */
+class PipelinedCsvParser {
+
+    private static final int CHAR_BLOCK_SIZE = 64 * 1024;
+
+    private static final int ROW_BATCH_SIZE = 256;
+
+    private static final char[] END_OF_INPUT = new char[0];
+
+    private static final RowBatch END_OF_ROWS = new RowBatch(null, 0);
+
+    private static final AtomicInteger PIPELINE_COUNTER = new AtomicInteger();
+
+    private final BlackDuckParserSettings settings;
+
+    private final StageQueue<char[]> charQueue;
+
+    private final StageQueue<RowBatch> rowQueue;
+
+    PipelinedCsvParser(final BlackDuckParserSettings settings) {
+        this.settings = settings;
+        charQueue = new StageQueue<>(settings.getDecodeQueueDepth());
+        rowQueue = new StageQueue<>(settings.getRowQueueDepth());
+    }
+
+    void parse(final InputStream inputStream, final RowProcessor rowProcessor) throws ScanParsingException, IOException {
+        final int pipelineId = PIPELINE_COUNTER.incrementAndGet();
+        final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+            final Thread thread = new Thread(runnable, "blackduck-parser-pipeline-" + pipelineId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final Future<?> reader = executor.submit(() -> {
+                decode(inputStream);
+                return null;
+            });
+            final Future<?> tokenizer = executor.submit(() -> tokenize(rowProcessor));
+            if (process(rowProcessor)) {
+                // rethrow failures of the background stages, tokenizer first as it stops consuming input on failure
+                tokenizer.get();
+                reader.get();
+            }
+        } catch (final InterruptedException e) {
+            throw ParsingFailures.interrupted(e);
+        } catch (final ExecutionException e) {
+            throw ParsingFailures.rethrow(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    PipelineStatistics getStatistics() {
+        return new PipelineStatistics(charQueue.getPutStallNanos(), charQueue.getTakeStallNanos() + rowQueue.getPutStallNanos(),
+                rowQueue.getTakeStallNanos());
+    }
+
+    /**
+     * Stage 1: reads and decodes the input, limits sizes of values.
+     */
+    private void decode(final InputStream inputStream) throws IOException, InterruptedException {
+        try (final Reader reader = settings.boundColumns(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            final char[] buffer = new char[CHAR_BLOCK_SIZE];
+            int count;
+            while ((count = reader.read(buffer)) >= 0) {
+                if (count > 0) {
+                    charQueue.put(Arrays.copyOf(buffer, count));
+                }
+            }
+        } catch (final IOException e) {
+            charQueue.put(END_OF_INPUT);
+            throw e;
+        }
+        charQueue.put(END_OF_INPUT);
+    }
+
+    /**
+     * Stage 2: tokenizes decoded input into batches of rows.
+     */
+    private Void tokenize(final RowProcessor rowProcessor) throws InterruptedException, IOException {
+        final RowBatchCollector collector = new RowBatchCollector();
+        final CsvParserSettings parserSettings = settings.newCsvParserSettings();
+        parserSettings.setRowProcessor(collector);
+        parserSettings.setHeaderExtractionEnabled(true);
+        try {
+            final QueueReader reader = new QueueReader();
+            // columns read by the processor of stage 3
+            new CsvParser(parserSettings).parse(ColumnSelection.selectColumns(parserSettings, reader, rowProcessor, settings));
+            collector.flush();
+        } catch (final RuntimeException | IOException e) {
+            // fails immediately if the pipeline was cancelled
+            rowQueue.put(END_OF_ROWS);
+            throw e;
+        }
+        rowQueue.put(END_OF_ROWS);
+        return null;
+    }
+
+    /**
+     * Stage 3: passes rows to the row processor on the calling thread.
+     *
+     * @return false if the row processor stopped parsing before the end of input
+     */
+    private boolean process(final RowProcessor rowProcessor) throws InterruptedException {
+        DetachedParsingContext context = null;
+        RowBatch batch;
+        while ((batch = rowQueue.take()) != END_OF_ROWS) {
+            if (context == null) {
+                context = new DetachedParsingContext(batch.headers);
+                rowProcessor.processStarted(context);
+            }
+            for (int i = 0; i < batch.size; i++) {
+                rowProcessor.rowProcessed(batch.rows[i], context);
+                context.recordProcessed();
+                if (context.isStopped()) {
+                    rowProcessor.processEnded(context);
+                    return false;
+                }
+            }
+        }
+        if (context == null) {
+            context = new DetachedParsingContext(null);
+            rowProcessor.processStarted(context);
+        }
+        rowProcessor.processEnded(context);
+        return true;
+    }
+
+    /**
+     * Batch of tokenized rows, batching keeps hand-off cost between stages low.
+     */
+    private static class RowBatch {
+
+        private final String[] headers;
+
+        private final String[][] rows;
+
+        private int size;
+
+        RowBatch(final String[] headers, final int capacity) {
+            this.headers = headers;
+            this.rows = new String[capacity][];
+        }
+    }
+
+    private class RowBatchCollector implements RowProcessor {
+
+        private RowBatch batch;
+
+        private String[] headers;
+
+        @Override
+        public void processStarted(final ParsingContext context) {
+            // nothing to do
+        }
+
+        @Override
+        public void rowProcessed(final String[] row, final ParsingContext context) {
+            if (batch == null) {
+                if (headers == null) {
+                    headers = context.headers();
+                }
+                batch = new RowBatch(headers, ROW_BATCH_SIZE);
+            }
+            batch.rows[batch.size++] = row;
+            if (batch.size == ROW_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void processEnded(final ParsingContext context) {
+            // remaining rows are flushed by tokenize()
+        }
+
+        void flush() {
+            if (batch != null) {
+                try {
+                    rowQueue.put(batch);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Pipeline cancelled", e);
+                }
+                batch = null;
+            }
+        }
+    }
+
+    /**
+     * Reader over the decoded blocks produced by the first stage.
+     */
+    private class QueueReader extends Reader {
+
+        private char[] block = new char[0];
+
+        private int position;
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) throws IOException {
+            if (block == END_OF_INPUT) {
+                return -1;
+            }
+            if (position == block.length) {
+                try {
+                    block = charQueue.take();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Pipeline cancelled", e);
+                }
+                position = 0;
+                if (block == END_OF_INPUT) {
+                    return -1;
+                }
+            }
+            final int count = Math.min(length, block.length - position);
+            System.arraycopy(block, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // input stream is closed by the reading stage
+        }
+    }
+}
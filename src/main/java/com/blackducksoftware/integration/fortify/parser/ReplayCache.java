@@ -0,0 +1,322 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+
+/**
+ * Vulnerabilities passed to SSC by previous imports, stored on disk by scan GUID, the MD5 of the uploaded report.
+ * A re-upload of an identical report is imported by replaying the stored builder calls, without tokenizing, mapping,
+ * date parsing and issue ID hashing. Entries are written by a {@link Writer} while the report is parsed and become
+ * visible once the import completes. The least recently used entries are deleted when the cache exceeds its size.
+ * Entries written with different settings affecting the vulnerabilities are not replayed.
+ */
+final class ReplayCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayCache.class);
+
+    private static final int FILE_MAGIC = 0x42445243;
+
+    private static final int FILE_VERSION = 1;
+
+    private static final String FILE_EXTENSION = ".bin";
+
+    /**
+     * Marks the end of the vulnerabilities in place of the length of an ID.
+     */
+    private static final int END_OF_RECORDS = -2;
+
+    /**
+     * End marker and number of vulnerabilities.
+     */
+    private static final int TRAILER_LENGTH = 12;
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    /**
+     * Settings the stored vulnerabilities depend on, an entry is only replayed with the same settings.
+     */
+    private final String settingsKey;
+
+    /**
+     * @param settings
+     *            cache directory and size and the settings affecting the vulnerabilities
+     */
+    ReplayCache(final BlackDuckParserSettings settings) {
+        this.directory = Paths.get(settings.getReplayCacheDirectory());
+        this.maxSize = settings.getReplayCacheSize();
+        this.settingsKey = settings.getAttributeColumns() + " " + settings.getDuplicatePolicy() + " " + settings.isFaultTolerant() + " "
+                + settings.getMaxCharsPerColumn() + " " + settings.getMaxCharsPerRow();
+    }
+
+    /**
+     * Passes the vulnerabilities stored for the scan to the handler.
+     *
+     * @param guid
+     *            scan GUID
+     * @param vulnerabilityHandler
+     *            handler provided by SSC
+     * @return number of vulnerabilities passed on, -1 if the scan is not cached
+     * @throws IOException
+     *             if the entry is damaged after vulnerabilities were passed on
+     */
+    long replay(final String guid, final VulnerabilityHandler vulnerabilityHandler) throws IOException {
+        final Path file = entry(guid);
+        final long count = readCount(file);
+        if (count < 0) {
+            return -1;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (final IOException e) {
+            // evicted as if it was not used
+            LOG.debug("Unable to touch replay cache entry " + file + ": " + e.getMessage());
+        }
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            readHeader(in);
+            // read records are replayed, never completed by a builder call
+            final VulnerabilityRecord record = new VulnerabilityRecord(null);
+            for (long i = 0; i < count; i++) {
+                record.read(in);
+                record.replay(vulnerabilityHandler);
+            }
+            return count;
+        } catch (final IOException e) {
+            delete(file);
+            throw new IOException("Replay cache entry " + file + " is damaged: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the header and the trailer of the entry.
+     *
+     * @return number of stored vulnerabilities, -1 if the entry does not exist or was written by another version or
+     *         with other settings
+     */
+    private long readCount(final Path file) {
+        if (!Files.isRegularFile(file)) {
+            return -1;
+        }
+        try {
+            try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (!readHeader(in)) {
+                    LOG.debug("Replay cache entry " + file + " was written with other settings");
+                    return -1;
+                }
+            }
+            final ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+            try (final FileChannel channel = FileChannel.open(file)) {
+                channel.read(trailer, channel.size() - TRAILER_LENGTH);
+            }
+            if (trailer.position() != TRAILER_LENGTH || trailer.getInt(0) != END_OF_RECORDS) {
+                throw new IOException("missing end of records");
+            }
+            return trailer.getLong(4);
+        } catch (final IOException e) {
+            LOG.warn("Replay cache entry " + file + " cannot be read, the report will be parsed: " + e.getMessage());
+            delete(file);
+            return -1;
+        }
+    }
+
+    /**
+     * @return false if the entry was written with other settings
+     */
+    private boolean readHeader(final DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+            throw new IOException("unknown file format");
+        }
+        return in.readInt() == VulnerabilityRecord.FORMAT && settingsKey.equals(in.readUTF());
+    }
+
+    /**
+     * Starts storing the vulnerabilities of an import.
+     *
+     * @param vulnerabilityHandler
+     *            handler provided by SSC
+     * @return writer passing vulnerabilities on to the handler
+     * @throws IOException
+     *             if the entry cannot be created
+     */
+    Writer newWriter(final VulnerabilityHandler vulnerabilityHandler) throws IOException {
+        Files.createDirectories(directory);
+        final Path tempFile = Files.createTempFile(directory, "replay", ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE));
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(VulnerabilityRecord.FORMAT);
+        out.writeUTF(settingsKey);
+        return new Writer(vulnerabilityHandler, tempFile, out);
+    }
+
+    private Path entry(final String guid) {
+        return directory.resolve(guid + FILE_EXTENSION);
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its size.
+     */
+    private synchronized void evict() {
+        final List<Map.Entry<Path, BasicFileAttributes>> entries = new ArrayList<>();
+        long size = 0;
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (final Path file : files) {
+                final BasicFileAttributes fileAttributes = Files.readAttributes(file, BasicFileAttributes.class);
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(file, fileAttributes));
+                size += fileAttributes.size();
+            }
+        } catch (final IOException e) {
+            LOG.warn("Unable to list replay cache " + directory + ": " + e.getMessage());
+            return;
+        }
+        entries.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        for (final Map.Entry<Path, BasicFileAttributes> entry : entries) {
+            if (size <= maxSize) {
+                break;
+            }
+            delete(entry.getKey());
+            size -= entry.getValue().size();
+        }
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            LOG.warn("Unable to delete replay cache entry " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * VulnerabilityHandler passing vulnerabilities on to the SSC handler and storing them for the cache entry. Every
+     * thread records into a vulnerability record of its own, completed vulnerabilities are stored in the order they
+     * are passed on. After a failure to write, vulnerabilities are only passed on and the entry is discarded.
+     */
+    final class Writer implements VulnerabilityHandler {
+
+        private final VulnerabilityHandler vulnerabilityHandler;
+
+        private final Path tempFile;
+
+        private final DataOutputStream out;
+
+        private final ThreadLocal<VulnerabilityRecord> records = new ThreadLocal<>();
+
+        private long count;
+
+        private boolean failed;
+
+        private Writer(final VulnerabilityHandler vulnerabilityHandler, final Path tempFile, final DataOutputStream out) {
+            this.vulnerabilityHandler = vulnerabilityHandler;
+            this.tempFile = tempFile;
+            this.out = out;
+        }
+
+        @Override
+        public StaticVulnerabilityBuilder startStaticVulnerability(final String id) {
+            VulnerabilityRecord record = records.get();
+            if (record == null) {
+                record = new VulnerabilityRecord(() -> completed(records.get()));
+                records.set(record);
+            }
+            record.start(id);
+            return record;
+        }
+
+        private void completed(final VulnerabilityRecord record) {
+            try {
+                record.replay(vulnerabilityHandler);
+                store(record);
+            } finally {
+                record.clear();
+            }
+        }
+
+        private synchronized void store(final VulnerabilityRecord record) {
+            if (failed) {
+                return;
+            }
+            try {
+                record.write(out);
+                count++;
+            } catch (final IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Makes the stored vulnerabilities the cache entry of the scan.
+         *
+         * @param guid
+         *            scan GUID
+         */
+        void commit(final String guid) {
+            synchronized (this) {
+                try {
+                    out.writeInt(END_OF_RECORDS);
+                    out.writeLong(count);
+                    out.close();
+                } catch (final IOException e) {
+                    fail(e);
+                }
+                if (failed) {
+                    delete(tempFile);
+                    return;
+                }
+            }
+            try {
+                Files.move(tempFile, entry(guid), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final IOException e) {
+                LOG.warn("Unable to store scan " + guid + " in the replay cache: " + e.getMessage());
+                delete(tempFile);
+                return;
+            }
+            evict();
+        }
+
+        /**
+         * Discards the stored vulnerabilities, used when the import fails or the scan GUID is not known.
+         */
+        synchronized void abort() {
+            try {
+                out.close();
+            } catch (final IOException e) {
+                // the file is deleted anyway
+            }
+            delete(tempFile);
+        }
+
+        private void fail(final IOException e) {
+            if (!failed) {
+                failed = true;
+                LOG.warn("Unable to write replay cache entry " + tempFile + ", the scan will not be cached: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rows skipped by the fault tolerant import, shared by the forks of a row processor.
+ * The last rows are kept in memory, every row can be written to a side file of the scan together with its record and
+ * line number. The side file is created with the first quarantined row and stays open until the import is closed.
+ * The error budget limits the share of quarantined rows, a file failing it is considered garbage.
+ */
+class RowQuarantine implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RowQuarantine.class);
+
+    /**
+     * Rows checked before the error budget applies, a few bad rows at the start of a file do not abort the import.
+     */
+    static final int MIN_ROWS_FOR_ERROR_BUDGET = 100;
+
+    /**
+     * Characters of a quarantined row kept in memory.
+     */
+    private static final int MAX_ROW_LENGTH = 1000;
+
+    private static final String SIDE_FILE_HEADER = "Record,Line,Reason,Row";
+
+    /**
+     * Row of the scan that could not be imported.
+     */
+    static final class Entry {
+
+        private final long record;
+
+        private final long line;
+
+        private final String reason;
+
+        private final String row;
+
+        private Entry(final long record, final long line, final String reason, final String row) {
+            this.record = record;
+            this.line = line;
+            this.reason = reason;
+            this.row = row;
+        }
+
+        /**
+         * @return number of the data record, starting with 1
+         */
+        long getRecord() {
+            return record;
+        }
+
+        /**
+         * @return line on which the record ends, -1 if the parser does not track lines
+         */
+        long getLine() {
+            return line;
+        }
+
+        String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return values of the row as CSV, cut at {@link RowQuarantine#MAX_ROW_LENGTH} characters
+         */
+        String getRow() {
+            return row;
+        }
+    }
+
+    private final int capacity;
+
+    private final double errorBudget;
+
+    private final Path sideFile;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    private final LongAdder importedRows = new LongAdder();
+
+    private long quarantinedRows;
+
+    private BufferedWriter sideFileWriter;
+
+    private boolean sideFileFailed;
+
+    /**
+     * @param settings
+     *            quarantine capacity, side file directory and error budget
+     * @param scanId
+     *            upload session ID naming the side file, null if SSC does not provide one
+     */
+    RowQuarantine(final BlackDuckParserSettings settings, final String scanId) {
+        this.capacity = settings.getMaxQuarantinedRows();
+        this.errorBudget = settings.getErrorBudget();
+        this.sideFile = settings.getQuarantineDirectory() == null ? null
+                : Paths.get(settings.getQuarantineDirectory()).resolve(sideFileName(scanId));
+    }
+
+    /**
+     * @return name of the side file, unique per import if the scan has no ID
+     */
+    private static String sideFileName(final String scanId) {
+        final String name = scanId == null || scanId.isEmpty() ? UUID.randomUUID().toString() : scanId.replaceAll("[^A-Za-z0-9._-]", "_");
+        return "quarantine-" + name + ".csv";
+    }
+
+    /**
+     * @return file the quarantined rows of the scan are written to, null if they are kept in memory only
+     */
+    Path getSideFile() {
+        return sideFile;
+    }
+
+    /**
+     * Counts a row imported successfully.
+     */
+    void rowImported() {
+        importedRows.increment();
+    }
+
+    /**
+     * Quarantines the row.
+     *
+     * @param record
+     *            number of the data record
+     * @param line
+     *            line on which the record ends, -1 if unknown
+     * @param reason
+     *            why the row was not imported
+     * @param values
+     *            all values of the row
+     * @return false if the error budget is exceeded and the import should be aborted
+     */
+    synchronized boolean add(final long record, final long line, final String reason, final String[] values) {
+        quarantinedRows++;
+        final String row = toCsv(values);
+        LOG.warn("Row of record " + record + (line < 0 ? "" : " ending on line " + line) + " quarantined: " + reason);
+        if (entries.size() == capacity) {
+            entries.removeFirst();
+        }
+        entries.addLast(new Entry(record, line, reason, row.length() > MAX_ROW_LENGTH ? row.substring(0, MAX_ROW_LENGTH) : row));
+        if (sideFile != null && !sideFileFailed) {
+            writeSideFile(record, line, reason, row);
+        }
+        final long rows = quarantinedRows + importedRows.sum();
+        return rows < MIN_ROWS_FOR_ERROR_BUDGET || quarantinedRows <= errorBudget * rows;
+    }
+
+    private void writeSideFile(final long record, final long line, final String reason, final String row) {
+        try {
+            if (sideFileWriter == null) {
+                sideFileWriter = Files.newBufferedWriter(sideFile, StandardCharsets.UTF_8);
+                sideFileWriter.write(SIDE_FILE_HEADER);
+                sideFileWriter.newLine();
+            }
+            sideFileWriter.write(record + "," + line + "," + quote(reason) + "," + quote(row));
+            sideFileWriter.newLine();
+        } catch (final IOException e) {
+            // quarantine stays in memory only
+            sideFileFailed = true;
+            LOG.warn("Unable to write quarantined rows to " + sideFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the side file once the import is done.
+     */
+    @Override
+    public synchronized void close() {
+        if (sideFileWriter == null) {
+            return;
+        }
+        try {
+            sideFileWriter.close();
+        } catch (final IOException e) {
+            LOG.warn("Unable to write quarantined rows to " + sideFile + ": " + e.getMessage());
+        } finally {
+            sideFileWriter = null;
+        }
+    }
+
+    private static String toCsv(final String[] values) {
+        final StringBuilder row = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            row.append(i == 0 ? "" : ",").append(values[i] == null ? "" : quote(values[i]));
+        }
+        return row.toString();
+    }
+
+    private static String quote(final String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * @return last quarantined rows, oldest first
+     */
+    synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    synchronized long getQuarantinedRows() {
+        return quarantinedRows;
+    }
+
+    long getImportedRows() {
+        return importedRows.sum();
+    }
+}
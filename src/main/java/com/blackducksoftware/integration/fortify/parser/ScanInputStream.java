@@ -0,0 +1,451 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+
+/**
+ * CSV content of an uploaded scan as one stream.
+ * Upload entries may be plain CSV files, gzip compressed CSV files or zip archives of CSV files, compression is
+ * detected from the content and entries are inflated on the fly. Several CSV files are joined into one logical report:
+ * header of every following file is skipped. A file with a header different from the first one fails the scan, its
+ * rows cannot be read with the columns of the first header and leaving them out would lose vulnerabilities.
+ * When an upload digest is provided, it is updated with every uploaded (compressed) byte, including bytes not needed
+ * to read the CSV content like zip directories.
+ */
+class ScanInputStream extends InputStream {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScanInputStream.class);
+
+    private static final String CSV_EXTENSION = ".csv";
+
+    private static final String[] SCAN_EXTENSIONS = { CSV_EXTENSION, ".csv.gz", ".gz", ".zip" };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    private final ScanData scanData;
+
+    private final List<ScanEntry> entries;
+
+    private final MessageDigest uploadDigest;
+
+    private final byte[] singleByte = new byte[1];
+
+    private int nextEntry;
+
+    /**
+     * Uploaded bytes of the current entry.
+     */
+    private BufferedInputStream entryStream;
+
+    /**
+     * Archive of the current entry, null if it is not a zip archive.
+     */
+    private ZipInputStream zipStream;
+
+    /**
+     * Inflated content of the current entry, null if it is not gzip compressed.
+     */
+    private GZIPInputStream gzipStream;
+
+    /**
+     * CSV content of the current file.
+     */
+    private InputStream part;
+
+    private int partCount;
+
+    private int lastByte = '\n';
+
+    private byte[] header;
+
+    private boolean endOfStream;
+
+    private ScanInputStream(final ScanData scanData, final List<ScanEntry> entries, final MessageDigest uploadDigest) {
+        this.scanData = scanData;
+        this.entries = entries;
+        this.uploadDigest = uploadDigest;
+    }
+
+    /**
+     * Opens CSV content of the upload.
+     *
+     * @param scanData
+     *            uploaded scan
+     * @param uploadDigest
+     *            digest to update with uploaded bytes, may be null
+     * @return CSV content
+     * @throws IOException
+     *             if upload cannot be read
+     */
+    static InputStream open(final ScanData scanData, final MessageDigest uploadDigest) throws IOException {
+        final List<ScanEntry> entries = new ArrayList<>();
+        if (scanData.getScanEntries() != null) {
+            for (final ScanEntry entry : scanData.getScanEntries()) {
+                if (isScanEntry(entry.getEntryName())) {
+                    entries.add(entry);
+                }
+            }
+        }
+        if (entries.isEmpty()) {
+            // upload without recognized entries, let SSC pick the CSV file
+            final InputStream inputStream = scanData.getInputStream(x -> x.endsWith(CSV_EXTENSION));
+            return uploadDigest == null ? inputStream : new DigestingInputStream(inputStream, uploadDigest);
+        }
+        // stable order of files, so that the same upload always produces the same scan
+        entries.sort(Comparator.comparing(ScanEntry::getEntryName));
+        return new ScanInputStream(scanData, entries, uploadDigest);
+    }
+
+    /**
+     * Opens the file of an upload consisting of a single uncompressed CSV file, when SSC provides it as a local file.
+     *
+     * @param scanData
+     *            uploaded scan
+     * @return channel of the CSV file, null if the upload has to be read as a stream
+     * @throws IOException
+     *             if upload cannot be read
+     */
+    static FileChannel openFileChannel(final ScanData scanData) throws IOException {
+        final List<ScanEntry> scanEntries = scanData.getScanEntries();
+        if (scanEntries == null || scanEntries.size() != 1 || scanEntries.get(0).getEntryName() == null
+                || !scanEntries.get(0).getEntryName().toLowerCase(Locale.ENGLISH).endsWith(CSV_EXTENSION)) {
+            return null;
+        }
+        final InputStream inputStream = scanData.getInputStream(scanEntries.get(0));
+        if (!(inputStream instanceof FileInputStream)) {
+            inputStream.close();
+            return null;
+        }
+        final FileChannel channel = ((FileInputStream) inputStream).getChannel();
+        final ByteBuffer magic = ByteBuffer.allocate(4);
+        channel.read(magic, 0);
+        if (isCompressed(magic.array())) {
+            channel.close();
+            return null;
+        }
+        return channel;
+    }
+
+    /**
+     * Opens CSV content of the upload collecting scan summary, see {@link ScanSummaryInputStream}.
+     */
+    static ScanSummaryInputStream openWithSummary(final ScanData scanData) throws IOException {
+        final MessageDigest uploadDigest = BlackDuckUtils.newMD5Digest();
+        return new ScanSummaryInputStream(open(scanData, uploadDigest), uploadDigest);
+    }
+
+    private static boolean isScanEntry(final String entryName) {
+        if (entryName == null) {
+            return false;
+        }
+        final String name = entryName.toLowerCase(Locale.ENGLISH);
+        for (final String extension : SCAN_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (!endOfStream) {
+            if (part == null) {
+                if (!nextPart()) {
+                    endOfStream = true;
+                    break;
+                }
+                if (lastByte != '\n') {
+                    // next file must start on a new record
+                    lastByte = '\n';
+                    buffer[offset] = '\n';
+                    return 1;
+                }
+            }
+            final int count = part.read(buffer, offset, length);
+            if (count > 0) {
+                lastByte = buffer[offset + count - 1];
+                return count;
+            }
+            if (count < 0) {
+                part = null;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        endOfStream = true;
+        part = null;
+        closeEntry();
+    }
+
+    /**
+     * Closes the current entry, ending the native inflater of a compressed entry right away instead of at
+     * finalization.
+     */
+    private void closeEntry() throws IOException {
+        try {
+            if (zipStream != null) {
+                zipStream.close();
+            }
+            if (gzipStream != null) {
+                gzipStream.close();
+            }
+        } finally {
+            zipStream = null;
+            gzipStream = null;
+            if (entryStream != null) {
+                entryStream.close();
+                entryStream = null;
+            }
+        }
+    }
+
+    /**
+     * Moves to the CSV content of the next file.
+     *
+     * @return false when there are no more files
+     */
+    private boolean nextPart() throws IOException {
+        while (true) {
+            if (zipStream != null) {
+                ZipEntry zipEntry;
+                while ((zipEntry = zipStream.getNextEntry()) != null) {
+                    if (!zipEntry.isDirectory() && zipEntry.getName().toLowerCase(Locale.ENGLISH).endsWith(CSV_EXTENSION)) {
+                        startPart(new NonClosingInputStream(zipStream), zipEntry.getName());
+                        return true;
+                    }
+                }
+            }
+            if (entryStream != null) {
+                // the rest of the entry, like zip directory, is still a part of the upload digest
+                drain(entryStream);
+                closeEntry();
+            }
+            if (nextEntry == entries.size()) {
+                return false;
+            }
+            final ScanEntry entry = entries.get(nextEntry++);
+            InputStream inputStream = scanData.getInputStream(entry);
+            if (uploadDigest != null) {
+                inputStream = new DigestingInputStream(inputStream, uploadDigest);
+            }
+            entryStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
+            final byte[] magic = peek(entryStream, 4);
+            if (isGzip(magic)) {
+                gzipStream = new GZIPInputStream(entryStream, BUFFER_SIZE);
+                startPart(gzipStream, entry.getEntryName());
+                return true;
+            } else if (isZip(magic)) {
+                zipStream = new ZipInputStream(entryStream);
+            } else {
+                startPart(entryStream, entry.getEntryName());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads header of the file, keeps it for the first file and skips it for the following ones.
+     *
+     * @throws IOException
+     *             if the header of the file differs from the header of the first file
+     */
+    private void startPart(final InputStream content, final String name) throws IOException {
+        final byte[] partHeader = readHeader(content);
+        if (partCount == 0) {
+            header = partHeader;
+            part = new SequenceOfTwo(partHeader, content);
+        } else if (Arrays.equals(stripLineEnd(header), stripLineEnd(partHeader))) {
+            part = content;
+        } else {
+            throw new IOException("CSV header of " + name + " does not match the header of the first scan file, "
+                    + "upload the files of different Hub versions as separate scans");
+        }
+        partCount++;
+        LOG.debug("Reading scan file " + name);
+    }
+
+    private static boolean isGzip(final byte[] magic) {
+        return magic[0] == (byte) 0x1f && magic[1] == (byte) 0x8b;
+    }
+
+    private static boolean isZip(final byte[] magic) {
+        return magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4;
+    }
+
+    private static boolean isCompressed(final byte[] magic) {
+        return isGzip(magic) || isZip(magic);
+    }
+
+    private static byte[] readHeader(final InputStream content) throws IOException {
+        final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        boolean inQuotes = false;
+        int b;
+        while ((b = content.read()) >= 0) {
+            headerBytes.write(b);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                break;
+            }
+            if (headerBytes.size() > MAX_HEADER_LENGTH) {
+                throw new IOException("CSV header is too long");
+            }
+        }
+        return headerBytes.toByteArray();
+    }
+
+    private static byte[] stripLineEnd(final byte[] line) {
+        int length = line.length;
+        while (length > 0 && (line[length - 1] == '\n' || line[length - 1] == '\r')) {
+            length--;
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    private static byte[] peek(final BufferedInputStream inputStream, final int length) throws IOException {
+        final byte[] bytes = new byte[length];
+        inputStream.mark(length);
+        int read = 0;
+        int count;
+        while (read < length && (count = inputStream.read(bytes, read, length - read)) > 0) {
+            read += count;
+        }
+        inputStream.reset();
+        return bytes;
+    }
+
+    private static void drain(final InputStream inputStream) throws IOException {
+        final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        while (inputStream.read(buffer, 0, buffer.length) >= 0) {
+            // digest is updated by read()
+        }
+    }
+
+    /**
+     * Already read header followed by the rest of the file.
+     */
+    private static class SequenceOfTwo extends InputStream {
+
+        private final byte[] first;
+
+        private final InputStream second;
+
+        private int position;
+
+        SequenceOfTwo(final byte[] first, final InputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < first.length ? first[position++] & 0xff : second.read();
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if (position < first.length) {
+                final int count = Math.min(length, first.length - position);
+                System.arraycopy(first, position, buffer, offset, count);
+                position += count;
+                return count;
+            }
+            return second.read(buffer, offset, length);
+        }
+    }
+
+    /**
+     * Zip entry content, closing it must not close the archive.
+     */
+    private static class NonClosingInputStream extends FilterInputStream {
+
+        NonClosingInputStream(final InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public void close() {
+            // archive is closed by ScanInputStream
+        }
+    }
+
+    /**
+     * Adds every byte read to the upload digest.
+     */
+    static class DigestingInputStream extends FilterInputStream {
+
+        private final MessageDigest digest;
+
+        DigestingInputStream(final InputStream inputStream, final MessageDigest digest) {
+            super(inputStream);
+            this.digest = digest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                digest.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                digest.update(buffer, offset, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final byte[] buffer = new byte[(int) Math.min(n, DRAIN_BUFFER_SIZE)];
+            final int count = read(buffer, 0, buffer.length);
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fortify.plugin.api.ScanData;
+
+/**
+ * Keeps scan summaries of recently processed uploads, keyed by SSC session id, so that the parseScan and
+ * parseVulnerabilities callbacks for the same ScanData read the file only once to compute the digest.
+ */
+class ScanSummaryCache {
+
+    private final Map<String, BlackDuckScanSummary> summaries;
+
+    ScanSummaryCache(final int maxEntries) {
+        summaries = new LinkedHashMap<String, BlackDuckScanSummary>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, BlackDuckScanSummary> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized BlackDuckScanSummary get(final ScanData scanData) {
+        final String key = scanData.getSessionId();
+        return key == null ? null : summaries.get(key);
+    }
+
+    synchronized void put(final ScanData scanData, final BlackDuckScanSummary summary) {
+        final String key = scanData.getSessionId();
+        if (key != null) {
+            summaries.put(key, summary);
+        }
+    }
+
+    synchronized void clear() {
+        summaries.clear();
+    }
+}
@@ -0,0 +1,220 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Hex;
+
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+/**
+ * Stream wrapper that collects scan summary data while the underlying stream is being read.
+ * Every byte passing through is added to the MD5 digest used as scan GUID, records are counted
+ * (new lines inside quoted values are not record separators) and the header and the first data line are kept
+ * so the scan date and the project can be extracted from them.
+ * For compressed uploads the GUID digest is computed over the compressed bytes by the stream reading them, this
+ * stream then only counts records of the inflated CSV content.
+ */
+class ScanSummaryInputStream extends FilterInputStream {
+
+    /**
+     * Header and first data line are only needed for the scan date and the project, do not keep huge descriptions in
+     * memory.
+     */
+    private static final int MAX_FIRST_LINE_LENGTH = 64 * 1024;
+
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    private final MessageDigest digest;
+
+    private final boolean digestContent;
+
+    private final ByteArrayOutputStream headerLine = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream firstDataLine = new ByteArrayOutputStream();
+
+    private final CsvRecordScanner recordScanner = new CsvRecordScanner();
+
+    private long byteCount;
+
+    private long recordCount;
+
+    private boolean recordHasContent;
+
+    private boolean endOfStream;
+
+    private BlackDuckScanSummary summary;
+
+    ScanSummaryInputStream(final InputStream inputStream) {
+        super(inputStream);
+        digest = BlackDuckUtils.newMD5Digest();
+        digestContent = true;
+    }
+
+    /**
+     * @param inputStream
+     *            CSV content
+     * @param uploadDigest
+     *            digest updated with the uploaded bytes while the content is read
+     */
+    ScanSummaryInputStream(final InputStream inputStream, final MessageDigest uploadDigest) {
+        super(inputStream);
+        digest = uploadDigest;
+        digestContent = false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b < 0) {
+            endOfStream = true;
+        } else {
+            if (digestContent) {
+                digest.update((byte) b);
+            }
+            byteCount++;
+            scan((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        final int count = super.read(buffer, offset, length);
+        if (count < 0) {
+            endOfStream = true;
+        } else if (count > 0) {
+            if (digestContent) {
+                digest.update(buffer, offset, count);
+            }
+            byteCount += count;
+            for (int i = 0; i < count; i++) {
+                scan(buffer[offset + i]);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        // skipped bytes still have to be part of the digest
+        final byte[] buffer = new byte[(int) Math.min(n, DRAIN_BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (count < 0) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        // not supported, see markSupported()
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Reads the rest of the stream so the digest covers the whole file.
+     */
+    void drain() throws IOException {
+        final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        while (read(buffer, 0, buffer.length) >= 0) {
+            // digest is updated by read()
+        }
+    }
+
+    /**
+     * @return true if the whole underlying stream was read and the summary covers the complete file.
+     */
+    boolean isFullyRead() {
+        return endOfStream;
+    }
+
+    /**
+     * Summary of the data read so far. Must be called after the stream was fully read.
+     *
+     * @return scan summary
+     */
+    BlackDuckScanSummary getSummary() {
+        if (summary == null) {
+            final long records = recordHasContent ? recordCount + 1 : recordCount;
+            final String header = new String(headerLine.toByteArray(), StandardCharsets.UTF_8);
+            final String line = new String(firstDataLine.toByteArray(), StandardCharsets.UTF_8);
+            final List<String[]> firstRecord = parseFirstRecord(header, line);
+            final String[] headers = firstRecord.size() < 2 ? null : firstRecord.get(0);
+            final String[] values = firstRecord.size() < 2 ? null : firstRecord.get(1);
+            summary = new BlackDuckScanSummary(Hex.encodeHexString(digest.digest()), parseScanDate(headers, values), Math.max(0, records - 1),
+                    byteCount, value(headers, values, BlackDuckColumn.PROJECT_NAME));
+        }
+        return summary;
+    }
+
+    private void scan(final byte b) {
+        if (recordScanner.endsRecord(b)) {
+            if (recordHasContent) {
+                recordCount++;
+            }
+            recordHasContent = false;
+            return;
+        }
+        if (b != '\r') {
+            recordHasContent = true;
+            if (recordCount == 0 && headerLine.size() < MAX_FIRST_LINE_LENGTH) {
+                headerLine.write(b);
+            } else if (recordCount == 1 && firstDataLine.size() < MAX_FIRST_LINE_LENGTH) {
+                firstDataLine.write(b);
+            }
+        }
+    }
+
+    private static List<String[]> parseFirstRecord(final String headerLine, final String firstDataLine) {
+        if (firstDataLine.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final CsvParserSettings parserSettings = new CsvParserSettings();
+        parserSettings.setMaxCharsPerColumn(MAX_FIRST_LINE_LENGTH);
+        return new CsvParser(parserSettings).parseAll(new StringReader(headerLine + '\n' + firstDataLine));
+    }
+
+    private static String value(final String[] headers, final String[] values, final BlackDuckColumn column) {
+        final int index = BlackDuckIssueMapper.indexOf(headers, column.getHeader());
+        return index == BlackDuckIssueMapper.NOT_FOUND || index >= values.length ? null : values[index];
+    }
+
+    private static Date parseScanDate(final String[] headers, final String[] values) {
+        if (values == null) {
+            return null;
+        }
+        if (BlackDuckIssueMapper.indexOf(headers, BlackDuckColumn.SCAN_DATE.getHeader()) != BlackDuckIssueMapper.NOT_FOUND) {
+            return BlackDuckUtils.convertToDateTime(value(headers, values, BlackDuckColumn.SCAN_DATE));
+        }
+        // reports without the column header, scan date is the last non empty column of the data row
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (values[i] != null) {
+                return BlackDuckUtils.convertToDateTime(values[i]);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import com.univocity.parsers.common.processor.RowProcessor;
+
+/**
+ * RowProcessor reading only some columns of the report. Values of the other columns are skipped by the tokenizer and
+ * passed to the processor as null, rows keep the positions of the full header.
+ */
+interface SelectiveRowProcessor extends RowProcessor {
+
+    /**
+     * @param headers
+     *            full CSV header
+     * @return indexes of the columns the processor reads
+     */
+    int[] selectedIndexes(String[] headers);
+}
@@ -0,0 +1,56 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded ring buffer connecting two pipeline stages.
+ * Time the producer spends blocked on a full buffer and the consumer spends blocked on an empty buffer is
+ * accumulated as stall time of the respective stage.
+ *
+ * @param <T>
+ *            type of the items passed between stages
+ */
+class StageQueue<T> {
+
+    private final ArrayBlockingQueue<T> queue;
+
+    private volatile long putStallNanos;
+
+    private volatile long takeStallNanos;
+
+    StageQueue(final int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Must be called from the single producer thread.
+     */
+    void put(final T item) throws InterruptedException {
+        if (!queue.offer(item)) {
+            final long start = System.nanoTime();
+            queue.put(item);
+            putStallNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Must be called from the single consumer thread.
+     */
+    T take() throws InterruptedException {
+        T item = queue.poll();
+        if (item == null) {
+            final long start = System.nanoTime();
+            item = queue.take();
+            takeStallNanos += System.nanoTime() - start;
+        }
+        return item;
+    }
+
+    long getPutStallNanos() {
+        return putStallNanos;
+    }
+
+    long getTakeStallNanos() {
+        return takeStallNanos;
+    }
+}
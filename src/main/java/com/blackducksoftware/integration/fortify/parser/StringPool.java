@@ -0,0 +1,101 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.util.Arrays;
+
+/**
+ * Bounded pool of strings for column values repeated over many rows of a report.
+ * Values are looked up by their characters, so a pooled value can be found without creating a new string first.
+ * Once the pool is full new values are returned without pooling. Not thread-safe, use one pool per parsing session.
+ */
+final class StringPool {
+
+    private static final String NULL = "null";
+
+    private final String[] table;
+
+    private final int mask;
+
+    private final int maxSize;
+
+    private int size;
+
+    private char[] chars = new char[128];
+
+    StringPool(final int maxSize) {
+        this.maxSize = maxSize;
+        table = new String[Integer.highestOneBit(Math.max(maxSize, 1)) << 2];
+        mask = table.length - 1;
+    }
+
+    String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final int hash = value.hashCode();
+        int index = spread(hash) & mask;
+        String entry;
+        while ((entry = table[index]) != null) {
+            if (entry.hashCode() == hash && entry.equals(value)) {
+                return entry;
+            }
+            index = (index + 1) & mask;
+        }
+        return add(index, value);
+    }
+
+    String intern(final char[] buffer, final int offset, final int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int index = spread(hash) & mask;
+        String entry;
+        while ((entry = table[index]) != null) {
+            if (entry.hashCode() == hash && matches(entry, buffer, offset, length)) {
+                return entry;
+            }
+            index = (index + 1) & mask;
+        }
+        return add(index, new String(buffer, offset, length));
+    }
+
+    /**
+     * Pooled equivalent of first + separator + second.
+     */
+    String intern(final String first, final char separator, final String second) {
+        final String firstValue = first == null ? NULL : first;
+        final String secondValue = second == null ? NULL : second;
+        final int length = firstValue.length() + 1 + secondValue.length();
+        if (chars.length < length) {
+            chars = Arrays.copyOf(chars, Math.max(length, chars.length * 2));
+        }
+        firstValue.getChars(0, firstValue.length(), chars, 0);
+        chars[firstValue.length()] = separator;
+        secondValue.getChars(0, secondValue.length(), chars, firstValue.length() + 1);
+        return intern(chars, 0, length);
+    }
+
+    private String add(final int index, final String value) {
+        if (size < maxSize) {
+            table[index] = value;
+            size++;
+        }
+        return value;
+    }
+
+    private static boolean matches(final String entry, final char[] buffer, final int offset, final int length) {
+        if (entry.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (entry.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,52 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Snapshot of the recorded times of one {@link ParserTimer}, in nanoseconds.
+ */
+public class TimerStatistics {
+
+    private final long count;
+
+    private final double mean;
+
+    private final long median;
+
+    private final long percentile99;
+
+    private final long max;
+
+    TimerStatistics(final Histogram histogram) {
+        count = histogram.getTotalCount();
+        mean = histogram.getMean();
+        median = histogram.getValueAtPercentile(50);
+        percentile99 = histogram.getValueAtPercentile(99);
+        max = histogram.getMaxValue();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getMedian() {
+        return median;
+    }
+
+    public long getPercentile99() {
+        return percentile99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count: " + count + ", mean: " + Math.round(mean) + "ns, median: " + median + "ns, 99%: " + percentile99 + "ns, max: " + max + "ns";
+    }
+}
@@ -0,0 +1,662 @@
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+import com.fortify.plugin.spi.VulnerabilityAttribute;
+
+/**
+ * Recorded StaticVulnerabilityBuilder calls of one vulnerability, passed on by replaying them into the builder of
+ * another handler. Calls are kept in order as setter, attribute and value, the arrays are reused by the next
+ * vulnerability started in the record. Used by the batched emission and, in the binary form of
+ * {@link #write(DataOutputStream)}, by the replay cache.
+ */
+final class VulnerabilityRecord implements StaticVulnerabilityBuilder {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Changes with the setters and attributes the binary form refers to by ordinal, stored data of another format
+     * cannot be read.
+     */
+    static final int FORMAT = (Arrays.toString(Setter.values()) + Arrays.toString(BlackDuckVulnerabilityAttribute.values())).hashCode();
+
+    private static final Setter[] SETTERS = Setter.values();
+
+    private static final BlackDuckVulnerabilityAttribute[] ATTRIBUTES = BlackDuckVulnerabilityAttribute.values();
+
+    private static final StaticVulnerabilityBuilder.Priority[] PRIORITIES = StaticVulnerabilityBuilder.Priority.values();
+
+    private static final int NULL = 0;
+
+    private static final int STRING = 1;
+
+    private static final int FLOAT = 2;
+
+    private static final int INTEGER = 3;
+
+    private static final int DECIMAL = 4;
+
+    private static final int DATE = 5;
+
+    private static final int PRIORITY = 6;
+
+    /**
+     * Called when the vulnerability is completed.
+     */
+    private final Runnable completion;
+
+    private String id;
+
+    private Setter[] setters = new Setter[INITIAL_CAPACITY];
+
+    private VulnerabilityAttribute[] attributes = new VulnerabilityAttribute[INITIAL_CAPACITY];
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    private int count;
+
+    /**
+     * @param completion
+     *            called when the recorded vulnerability is completed
+     */
+    VulnerabilityRecord(final Runnable completion) {
+        this.completion = completion;
+    }
+
+    /**
+     * Forgets the recorded calls and starts recording a vulnerability.
+     *
+     * @param id
+     *            issue ID
+     */
+    void start(final String id) {
+        clear();
+        this.id = id;
+    }
+
+    private VulnerabilityRecord add(final Setter setter, final VulnerabilityAttribute attribute, final Object value) {
+        if (count == setters.length) {
+            setters = Arrays.copyOf(setters, 2 * count);
+            attributes = Arrays.copyOf(attributes, 2 * count);
+            values = Arrays.copyOf(values, 2 * count);
+        }
+        setters[count] = setter;
+        attributes[count] = attribute;
+        values[count] = value;
+        count++;
+        return this;
+    }
+
+    /**
+     * Passes the recorded vulnerability to the handler.
+     *
+     * @param vulnerabilityHandler
+     *            handler receiving the calls
+     */
+    void replay(final VulnerabilityHandler vulnerabilityHandler) {
+        final StaticVulnerabilityBuilder vulnerabilityBuilder = vulnerabilityHandler.startStaticVulnerability(id);
+        for (int i = 0; i < count; i++) {
+            setters[i].apply(vulnerabilityBuilder, attributes[i], values[i]);
+        }
+        vulnerabilityBuilder.completeVulnerability();
+    }
+
+    /**
+     * Forgets the recorded calls, the values are released.
+     */
+    void clear() {
+        Arrays.fill(attributes, 0, count, null);
+        Arrays.fill(values, 0, count, null);
+        id = null;
+        count = 0;
+    }
+
+    /**
+     * Writes the recorded vulnerability: length-prefixed ID and number of calls followed by setter, attribute and tagged
+     * value of every call.
+     *
+     * @param out
+     *            stream to write to
+     * @throws IOException
+     *             if the stream cannot be written or an attribute is not a {@link BlackDuckVulnerabilityAttribute}
+     */
+    void write(final DataOutputStream out) throws IOException {
+        writeString(out, id);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeByte(setters[i].ordinal());
+            if (attributes[i] == null) {
+                out.writeByte(-1);
+            } else if (attributes[i] instanceof BlackDuckVulnerabilityAttribute) {
+                out.writeByte(((BlackDuckVulnerabilityAttribute) attributes[i]).ordinal());
+            } else {
+                throw new IOException("Attribute " + attributes[i].attributeName() + " cannot be stored");
+            }
+            writeValue(out, values[i]);
+        }
+    }
+
+    /**
+     * Replaces the recorded calls by the vulnerability read from the stream, see {@link #write(DataOutputStream)}.
+     *
+     * @param in
+     *            stream to read from
+     * @throws IOException
+     *             if the stream cannot be read or does not hold a recorded vulnerability
+     */
+    void read(final DataInputStream in) throws IOException {
+        start(readString(in));
+        final int calls = in.readInt();
+        if (calls < 0) {
+            throw new IOException("Invalid number of calls " + calls);
+        }
+        for (int i = 0; i < calls; i++) {
+            final int setter = in.readUnsignedByte();
+            final int attribute = in.readByte();
+            if (setter >= SETTERS.length || attribute >= ATTRIBUTES.length) {
+                throw new IOException("Unknown setter " + setter + " or attribute " + attribute);
+            }
+            add(SETTERS[setter], attribute < 0 ? null : ATTRIBUTES[attribute], readValue(in));
+        }
+    }
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            final byte[] unscaledValue = ((BigDecimal) value).unscaledValue().toByteArray();
+            out.writeInt(((BigDecimal) value).scale());
+            out.writeInt(unscaledValue.length);
+            out.write(unscaledValue);
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            out.writeByte(PRIORITY);
+            out.writeByte(((StaticVulnerabilityBuilder.Priority) value).ordinal());
+        }
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException {
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return readString(in);
+        case FLOAT:
+            return in.readFloat();
+        case INTEGER:
+            return in.readInt();
+        case DECIMAL:
+            final int scale = in.readInt();
+            return new BigDecimal(new BigInteger(readBytes(in)), scale);
+        case DATE:
+            return new Date(in.readLong());
+        case PRIORITY:
+            final int priority = in.readUnsignedByte();
+            if (priority >= PRIORITIES.length) {
+                throw new IOException("Unknown priority " + priority);
+            }
+            return PRIORITIES[priority];
+        default:
+            throw new IOException("Unknown value type " + tag);
+        }
+    }
+
+    /**
+     * Writes the UTF-8 bytes of the string prefixed by their number, -1 for null.
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void completeVulnerability() {
+        completion.run();
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setAccuracy(final Float accuracy) {
+        return add(Setter.ACCURACY, null, accuracy);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setAnalyzer(final String analyzer) {
+        return add(Setter.ANALYZER, null, analyzer);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setEngineType(final String engineType) {
+        return add(Setter.ENGINE_TYPE, null, engineType);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setCategory(final String category) {
+        return add(Setter.CATEGORY, null, category);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSubCategory(final String subCategory) {
+        return add(Setter.SUB_CATEGORY, null, subCategory);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setMappedCategory(final String mappedCategory) {
+        return add(Setter.MAPPED_CATEGORY, null, mappedCategory);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setConfidence(final Float confidence) {
+        return add(Setter.CONFIDENCE, null, confidence);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setPriority(final Priority priority) {
+        return add(Setter.PRIORITY, null, priority);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setImpact(final Float impact) {
+        return add(Setter.IMPACT, null, impact);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setVulnerabilityAbstract(final String vulnerabilityAbstract) {
+        return add(Setter.VULNERABILITY_ABSTRACT, null, vulnerabilityAbstract);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setVulnerabilityRecommendation(final String vulnerabilityRecommendation) {
+        return add(Setter.VULNERABILITY_RECOMMENDATION, null, vulnerabilityRecommendation);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setKingdom(final String kingdom) {
+        return add(Setter.KINGDOM, null, kingdom);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setLikelihood(final Float likelihood) {
+        return add(Setter.LIKELIHOOD, null, likelihood);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setVulnerabilityType(final String vulnerabilityType) {
+        return add(Setter.VULNERABILITY_TYPE, null, vulnerabilityType);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setVulnerabilitySubtype(final String vulnerabilitySubtype) {
+        return add(Setter.VULNERABILITY_SUBTYPE, null, vulnerabilitySubtype);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setProbability(final Float probability) {
+        return add(Setter.PROBABILITY, null, probability);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setRuleGuid(final String ruleGuid) {
+        return add(Setter.RULE_GUID, null, ruleGuid);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSeverity(final Float severity) {
+        return add(Setter.SEVERITY, null, severity);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setDecimalCustomAttributeValue(final VulnerabilityAttribute attribute, final BigDecimal value) {
+        return add(Setter.DECIMAL_CUSTOM_ATTRIBUTE, attribute, value);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setStringCustomAttributeValue(final VulnerabilityAttribute attribute, final String value) {
+        return add(Setter.STRING_CUSTOM_ATTRIBUTE, attribute, value);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setDateCustomAttributeValue(final VulnerabilityAttribute attribute, final Date value) {
+        return add(Setter.DATE_CUSTOM_ATTRIBUTE, attribute, value);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setClassName(final String className) {
+        return add(Setter.CLASS_NAME, null, className);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setShortFileName(final String shortFileName) {
+        return add(Setter.SHORT_FILE_NAME, null, shortFileName);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setFileName(final String fileName) {
+        return add(Setter.FILE_NAME, null, fileName);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setFunctionName(final String functionName) {
+        return add(Setter.FUNCTION_NAME, null, functionName);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setLineNumber(final Integer lineNumber) {
+        return add(Setter.LINE_NUMBER, null, lineNumber);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSourceFile(final String sourceFile) {
+        return add(Setter.SOURCE_FILE, null, sourceFile);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSourceLine(final Integer sourceLine) {
+        return add(Setter.SOURCE_LINE, null, sourceLine);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setPackageName(final String packageName) {
+        return add(Setter.PACKAGE_NAME, null, packageName);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSink(final String sink) {
+        return add(Setter.SINK, null, sink);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSinkContext(final String sinkContext) {
+        return add(Setter.SINK_CONTEXT, null, sinkContext);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSource(final String source) {
+        return add(Setter.SOURCE, null, source);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setSourceContext(final String sourceContext) {
+        return add(Setter.SOURCE_CONTEXT, null, sourceContext);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setMinVirtualCallConfidence(final Float minVirtualCallConfidence) {
+        return add(Setter.MIN_VIRTUAL_CALL_CONFIDENCE, null, minVirtualCallConfidence);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setRemediationConstant(final Float remediationConstant) {
+        return add(Setter.REMEDIATION_CONSTANT, null, remediationConstant);
+    }
+
+    @Override
+    public StaticVulnerabilityBuilder setTaintFlag(final String taintFlag) {
+        return add(Setter.TAINT_FLAG, null, taintFlag);
+    }
+
+    /**
+     * Recorded StaticVulnerabilityBuilder call. Ordinals are stored by the replay cache.
+     */
+    private enum Setter {
+        ACCURACY {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setAccuracy((Float) value);
+            }
+        },
+        ANALYZER {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setAnalyzer((String) value);
+            }
+        },
+        ENGINE_TYPE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setEngineType((String) value);
+            }
+        },
+        CATEGORY {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setCategory((String) value);
+            }
+        },
+        SUB_CATEGORY {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSubCategory((String) value);
+            }
+        },
+        MAPPED_CATEGORY {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setMappedCategory((String) value);
+            }
+        },
+        CONFIDENCE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setConfidence((Float) value);
+            }
+        },
+        PRIORITY {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setPriority((StaticVulnerabilityBuilder.Priority) value);
+            }
+        },
+        IMPACT {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setImpact((Float) value);
+            }
+        },
+        VULNERABILITY_ABSTRACT {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setVulnerabilityAbstract((String) value);
+            }
+        },
+        VULNERABILITY_RECOMMENDATION {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setVulnerabilityRecommendation((String) value);
+            }
+        },
+        KINGDOM {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setKingdom((String) value);
+            }
+        },
+        LIKELIHOOD {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setLikelihood((Float) value);
+            }
+        },
+        VULNERABILITY_TYPE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setVulnerabilityType((String) value);
+            }
+        },
+        VULNERABILITY_SUBTYPE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setVulnerabilitySubtype((String) value);
+            }
+        },
+        PROBABILITY {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setProbability((Float) value);
+            }
+        },
+        RULE_GUID {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setRuleGuid((String) value);
+            }
+        },
+        SEVERITY {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSeverity((Float) value);
+            }
+        },
+        DECIMAL_CUSTOM_ATTRIBUTE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setDecimalCustomAttributeValue(attribute, (BigDecimal) value);
+            }
+        },
+        STRING_CUSTOM_ATTRIBUTE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setStringCustomAttributeValue(attribute, (String) value);
+            }
+        },
+        DATE_CUSTOM_ATTRIBUTE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setDateCustomAttributeValue(attribute, (Date) value);
+            }
+        },
+        CLASS_NAME {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setClassName((String) value);
+            }
+        },
+        SHORT_FILE_NAME {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setShortFileName((String) value);
+            }
+        },
+        FILE_NAME {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setFileName((String) value);
+            }
+        },
+        FUNCTION_NAME {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setFunctionName((String) value);
+            }
+        },
+        LINE_NUMBER {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setLineNumber((Integer) value);
+            }
+        },
+        SOURCE_FILE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSourceFile((String) value);
+            }
+        },
+        SOURCE_LINE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSourceLine((Integer) value);
+            }
+        },
+        PACKAGE_NAME {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setPackageName((String) value);
+            }
+        },
+        SINK {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSink((String) value);
+            }
+        },
+        SINK_CONTEXT {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSinkContext((String) value);
+            }
+        },
+        SOURCE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSource((String) value);
+            }
+        },
+        SOURCE_CONTEXT {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setSourceContext((String) value);
+            }
+        },
+        MIN_VIRTUAL_CALL_CONFIDENCE {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setMinVirtualCallConfidence((Float) value);
+            }
+        },
+        REMEDIATION_CONSTANT {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setRemediationConstant((Float) value);
+            }
+        },
+        TAINT_FLAG {
+            @Override
+            void apply(final StaticVulnerabilityBuilder builder, final VulnerabilityAttribute attribute, final Object value) {
+                builder.setTaintFlag((String) value);
+            }
+        };
+
+        abstract void apply(StaticVulnerabilityBuilder builder, VulnerabilityAttribute attribute, Object value);
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ * <p>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * <p>
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.parser.BlackDuckCSVParser;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckCsvRowProcessor;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckParserSettings;
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.univocity.parsers.common.ParsingContext;
+import com.univocity.parsers.common.processor.RowProcessor;
+
+/**
+ * Testing that the byte level tokenizer gives the same rows as the univocity tokenizer.
+ */
+public class BlackDuckByteTokenizerTest {
+    private static final String COMPLEX_CSV = "src/test/resources/complexcsv.csv";
+
+    private static final String TEST_CSV = "src/test/resources/testcsv.csv";
+
+    private static final int[] BUFFER_SIZES = { 1, 7, 64, 1024 * 1024 };
+
+    /**
+     * Tests the rows of the complex report with input buffers splitting values, quotes and multi-byte characters.
+     */
+    @Test
+    public void testComplexCSVFile() throws Exception {
+        final byte[] report = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+        for (final int bufferSize : BUFFER_SIZES) {
+            assertSameRows(report, bufferSize);
+        }
+    }
+
+    /**
+     * Tests quoting, whitespace and line break variants of values.
+     */
+    @Test
+    public void testQuotedAndMultilineValues() throws Exception {
+        final String[] reports = {
+                "h1,h2,h3\n1,\"a \"\"quoted\"\" value\",\"line\nbreak\"\n2,,\"\"\n",
+                "h1,h2,h3\r\n1,2,3\r\n\r\n   \n4,\"multi\r\nline\r\n\",6\r\n",
+                "h1,h2,h3\n  a b  , \"q\"  ,\t\" c \"\t\n",
+                "h1,h2,h3\n1,a\"b,c\n2,\"a\" \"b\",3\n",
+                "h1,h2,h3\n1,2\n3,4,5,6,7\n",
+                "h1,h2,h3\n1,\"ab\"cd,x\ny,z\n",
+                "h1,h2,h3\nü,\"日本語\",\"😀 😁\"\n",
+                "h1,h2,h3\n1,2,\"unclosed",
+                "h1,h2,h3\n1,2,3",
+                "h1,h2,h3\n",
+                "",
+        };
+        for (final String report : reports) {
+            for (final int bufferSize : BUFFER_SIZES) {
+                assertSameRows(report.getBytes(StandardCharsets.UTF_8), bufferSize);
+            }
+        }
+    }
+
+    /**
+     * Tests quoted values with line breaks, escaped quotes and multi-byte characters at every offset of the 8 byte words
+     * the tokenizer scans at once.
+     */
+    @Test
+    public void testQuotedLineBreaksInWords() throws Exception {
+        final String[] specials = { "\n", "\r\n", "\"\"", "\n\"\"\n", "ü😀", "," };
+        final StringBuilder report = new StringBuilder("h1,h2,h3\n");
+        for (final String special : specials) {
+            for (int offset = 0; offset < 2 * Long.BYTES; offset++) {
+                final String prefix = String.join("", Collections.nCopies(offset, "a"));
+                final String suffix = String.join("", Collections.nCopies(2 * Long.BYTES - offset, "b"));
+                report.append(offset).append(",\"").append(prefix).append(special).append(suffix).append(special).append("\",")
+                        .append(prefix).append('\n');
+            }
+        }
+        final byte[] bytes = report.toString().getBytes(StandardCharsets.UTF_8);
+        for (final int bufferSize : BUFFER_SIZES) {
+            Assert.assertEquals(specials.length * 2 * Long.BYTES, parseRows(bytes, bufferSize, true).size());
+            assertSameRows(bytes, bufferSize);
+        }
+    }
+
+    /**
+     * Tests that the byte level tokenizer is rejected together with parallel or pipelined parsing, which tokenize
+     * decoded characters.
+     */
+    @Test
+    public void testRejectedCombinations() {
+        final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+        settings.setByteTokenizer(true);
+        try {
+            settings.setParallelism(2);
+            Assert.fail("parallelism accepted");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertEquals(1, settings.getParallelism());
+        }
+        try {
+            settings.setPipelined(true);
+            Assert.fail("pipelined accepted");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertFalse(settings.isPipelined());
+        }
+
+        settings.setByteTokenizer(false);
+        settings.setPipelined(true);
+        try {
+            settings.setByteTokenizer(true);
+            Assert.fail("byteTokenizer accepted");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertFalse(settings.isByteTokenizer());
+        }
+    }
+
+    /**
+     * Tests that values are cut at the column and row limits like the univocity tokenizer reading bounded input.
+     */
+    @Test
+    public void testTruncatedValues() throws Exception {
+        final String huge = String.join("", Collections.nCopies(3000, "\"huge\", "));
+        final String hugeUnicode = String.join("", Collections.nCopies(5000, "ü😀日"));
+        final String report = "h1,h2,h3,h4\n"
+                + "1,\"" + huge.replace("\"", "\"\"") + "\"," + huge.replace("\"", "").replace(",", ";") + ",4\n"
+                + "2,\"" + hugeUnicode + "\",  " + hugeUnicode + "  ,\"" + hugeUnicode + "\"\n"
+                + String.join(",", Collections.nCopies(4, "\"" + huge.replace("\"", "\"\"") + "\"")) + "\n";
+        for (final int bufferSize : BUFFER_SIZES) {
+            assertSameRows(report.getBytes(StandardCharsets.UTF_8), bufferSize);
+        }
+    }
+
+    /**
+     * Tests that a quote inside of an unquoted value is an ordinary character, so the column limit does not drop the
+     * delimiters and line breaks of the following rows.
+     */
+    @Test
+    public void testStrayQuote() throws Exception {
+        final List<String> lines = Files.readAllLines(new File(TEST_CSV).toPath(), StandardCharsets.UTF_8);
+        final StringBuilder report = new StringBuilder(lines.get(0)).append('\n');
+        for (int i = 0; i < 60; i++) {
+            for (final String line : lines.subList(1, lines.size())) {
+                report.append(line).append('\n');
+            }
+        }
+        final byte[] bytes = report.toString().replaceFirst("solrWar", "solrWar 5\" edition").getBytes(StandardCharsets.UTF_8);
+        final int rows = 60 * (lines.size() - 1);
+        for (final int bufferSize : BUFFER_SIZES) {
+            Assert.assertEquals(rows, parseRows(bytes, bufferSize, false).size());
+            assertSameRows(bytes, bufferSize);
+        }
+    }
+
+    /**
+     * Tests that the vulnerabilities built from the selected columns of the report are the same.
+     */
+    @Test
+    public void testVulnerabilities() throws Exception {
+        final byte[] report = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+        Assert.assertEquals(parseVulnerabilities(report, false), parseVulnerabilities(report, true));
+    }
+
+    private static void assertSameRows(final byte[] report, final int bufferSize) throws Exception {
+        final List<String> expected = parseRows(report, bufferSize, false);
+        final List<String> actual = parseRows(report, bufferSize, true);
+        Assert.assertEquals("Buffer size " + bufferSize + " of " + new String(report, StandardCharsets.UTF_8), expected, actual);
+    }
+
+    private static List<String> parseRows(final byte[] report, final int bufferSize, final boolean byteTokenizer) throws Exception {
+        final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+        settings.setInputBufferSize(bufferSize);
+        settings.setByteTokenizer(byteTokenizer);
+        final List<String> rows = new ArrayList<>();
+        new BlackDuckCSVParser(settings).parseIssues(new ByteArrayInputStream(report), new RowProcessor() {
+            @Override
+            public void processStarted(final ParsingContext context) {
+            }
+
+            @Override
+            public void rowProcessed(final String[] row, final ParsingContext context) {
+                rows.add(Arrays.toString(context.headers()) + " " + context.currentRecord() + ":" + context.currentLine() + " " + Arrays.toString(row));
+            }
+
+            @Override
+            public void processEnded(final ParsingContext context) {
+            }
+        });
+        return rows;
+    }
+
+    private static List<String> parseVulnerabilities(final byte[] report, final boolean byteTokenizer) throws Exception {
+        final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+        settings.setByteTokenizer(byteTokenizer);
+        final List<String> calls = new ArrayList<>();
+        final StaticVulnerabilityBuilder vulnerabilityBuilder = (StaticVulnerabilityBuilder) Proxy.newProxyInstance(
+                StaticVulnerabilityBuilder.class.getClassLoader(), new Class[] { StaticVulnerabilityBuilder.class },
+                (proxy, method, args) -> {
+                    calls.add(method.getName() + (args == null ? "" : Arrays.toString(args)));
+                    return method.getReturnType().isInstance(proxy) ? proxy : null;
+                });
+        new BlackDuckCSVParser(settings).parseIssues(new ByteArrayInputStream(report), new BlackDuckCsvRowProcessor(id -> {
+            calls.add(id);
+            return vulnerabilityBuilder;
+        }));
+        return calls;
+    }
+}
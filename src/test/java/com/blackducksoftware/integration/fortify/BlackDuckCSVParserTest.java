@@ -24,11 +24,17 @@ package com.blackducksoftware.integration.fortify;
 
 import static com.blackducksoftware.integration.fortify.parser.BlackDuckUtils.getMD5ForStream;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -36,9 +42,15 @@ import org.junit.Test;
 
 import com.blackducksoftware.integration.fortify.parser.BlackDuckBeanProcessor;
 import com.blackducksoftware.integration.fortify.parser.BlackDuckCSVParser;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckColumn;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckCsvRowProcessor;
 import com.blackducksoftware.integration.fortify.parser.BlackDuckConstants;
 import com.blackducksoftware.integration.fortify.parser.BlackDuckIssue;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckParserSettings;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckScanSummary;
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
 import com.univocity.parsers.common.ParsingContext;
+import com.univocity.parsers.common.processor.RowListProcessor;
 
 /**
  * Testing the CSV output of the Hub file.
@@ -196,4 +208,131 @@ public class BlackDuckCSVParserTest {
             Assert.fail(e.getMessage());
         }
     }
+
+    /**
+     * Tests that a single read of the file provides the whole file digest and the number of data rows.
+     */
+    @Test
+    public void testScanSummary() {
+        try (final InputStream targetStream = new FileInputStream(complexCsvFile); final InputStream md5Stream = new FileInputStream(complexCsvFile)) {
+            final BlackDuckScanSummary summary = new BlackDuckCSVParser().summarizeScan(targetStream);
+            Assert.assertEquals(getMD5ForStream(md5Stream), summary.getGuid());
+            Assert.assertEquals(41, summary.getRowCount());
+            Assert.assertEquals(complexCsvFile.length(), summary.getByteCount());
+        } catch (final Exception e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that parallel parsing of small chunks returns the same rows in the same order as sequential parsing.
+     */
+    @Test
+    public void testParallelCSVFile() {
+        try {
+            final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+            settings.setParallelism(4);
+            settings.setChunkSize(1024);
+            final List<String> sequentialIds = parseIssueIds(new BlackDuckCSVParser());
+            final List<String> parallelIds = parseIssueIds(new BlackDuckCSVParser(settings));
+            Assert.assertEquals(41, parallelIds.size());
+            Assert.assertEquals(sequentialIds, parallelIds);
+        } catch (final Exception e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a quote inside of an unquoted value does not move the chunk boundaries of parallel parsing into the line
+     * breaks of quoted values.
+     */
+    @Test
+    public void testParallelStrayQuote() throws Exception {
+        final StringBuilder report = new StringBuilder("h1,h2,h3\n1,solrWar 5\" edition,x\n");
+        for (int i = 0; i < 50; i++) {
+            report.append(i).append(",\"multi\nline\",y\n");
+        }
+        final byte[] bytes = report.toString().getBytes(StandardCharsets.UTF_8);
+        final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+        settings.setParallelism(2);
+        settings.setChunkSize(64);
+        final RowListProcessor sequentialRows = new RowListProcessor();
+        new BlackDuckCSVParser().parseIssues(new ByteArrayInputStream(bytes), sequentialRows);
+        final RowListProcessor parallelRows = new RowListProcessor();
+        new BlackDuckCSVParser(settings).parseIssues(new ByteArrayInputStream(bytes), parallelRows);
+        Assert.assertEquals(51, parallelRows.getRows().size());
+        for (int i = 0; i < sequentialRows.getRows().size(); i++) {
+            Assert.assertArrayEquals(sequentialRows.getRows().get(i), parallelRows.getRows().get(i));
+        }
+    }
+
+    /**
+     * Tests that pipelined parsing returns the same rows in the same order as sequential parsing.
+     */
+    @Test
+    public void testPipelinedCSVFile() {
+        try {
+            final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+            settings.setPipelined(true);
+            settings.setRowQueueDepth(1);
+            final BlackDuckCSVParser pipelinedParser = new BlackDuckCSVParser(settings);
+            final List<String> pipelinedIds = parseIssueIds(pipelinedParser);
+            Assert.assertEquals(41, pipelinedIds.size());
+            Assert.assertEquals(parseIssueIds(new BlackDuckCSVParser()), pipelinedIds);
+            Assert.assertNotNull(pipelinedParser.getPipelineStatistics());
+        } catch (final Exception e) {
+            Assert.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that columns not imported into SSC are skipped by the tokenizer while the full header is still validated.
+     */
+    @Test
+    public void testColumnSelection() throws Exception {
+        final BlackDuckParserSettings parallelSettings = new BlackDuckParserSettings();
+        parallelSettings.setParallelism(2);
+        parallelSettings.setChunkSize(1024);
+        final BlackDuckParserSettings pipelinedSettings = new BlackDuckParserSettings();
+        pipelinedSettings.setPipelined(true);
+        for (final BlackDuckCSVParser parser : Arrays.asList(new BlackDuckCSVParser(), new BlackDuckCSVParser(parallelSettings),
+                new BlackDuckCSVParser(pipelinedSettings))) {
+            final List<String[]> rows = new ArrayList<>();
+            final StaticVulnerabilityBuilder vulnerabilityBuilder = (StaticVulnerabilityBuilder) Proxy.newProxyInstance(
+                    StaticVulnerabilityBuilder.class.getClassLoader(), new Class[] { StaticVulnerabilityBuilder.class },
+                    (proxy, method, args) -> method.getReturnType().isInstance(proxy) ? proxy : null);
+            try (final InputStream targetStream = new FileInputStream(complexCsvFile)) {
+                parser.parseIssues(targetStream, new BlackDuckCsvRowProcessor(id -> vulnerabilityBuilder) {
+                    @Override
+                    public void rowProcessed(final String[] row, final ParsingContext context) {
+                        Assert.assertEquals(BlackDuckConstants.BLACKDUCK_HEADER_COUNT.intValue(), context.headers().length);
+                        rows.add(row.clone());
+                        super.rowProcessed(row, context);
+                    }
+                });
+            }
+            Assert.assertEquals(41, rows.size());
+            for (final String[] row : rows) {
+                for (final BlackDuckColumn column : Arrays.asList(BlackDuckColumn.PROJECT_ID, BlackDuckColumn.VERSION_ID,
+                        BlackDuckColumn.CHANNEL_VERSION_ID, BlackDuckColumn.SCAN_DATE)) {
+                    Assert.assertNull(row[column.ordinal()]);
+                }
+                Assert.assertNotNull(row[BlackDuckColumn.DESCRIPTION.ordinal()]);
+                Assert.assertNotNull(row[BlackDuckColumn.SEVERITY.ordinal()]);
+            }
+        }
+    }
+
+    private List<String> parseIssueIds(final BlackDuckCSVParser blackDuckParser) throws Exception {
+        final List<String> issueIds = new ArrayList<>();
+        try (final InputStream targetStream = new FileInputStream(complexCsvFile)) {
+            blackDuckParser.parseIssues(targetStream, new BlackDuckBeanProcessor() {
+                @Override
+                public void beanProcessed(final BlackDuckIssue bean, final ParsingContext context) {
+                    issueIds.add(bean.getId());
+                }
+            });
+        }
+        return issueIds;
+    }
 }
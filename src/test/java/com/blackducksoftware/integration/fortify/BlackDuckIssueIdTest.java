@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ * <p>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * <p>
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.parser.BlackDuckBeanProcessor;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckCSVParser;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckIssue;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckUtils;
+import com.univocity.parsers.common.ParsingContext;
+
+/**
+ * Issue IDs identify issues in SSC, they must never change between plugin versions.
+ */
+public class BlackDuckIssueIdTest {
+
+    private static final String COMPLEX_CSV = "src/test/resources/complexcsv.csv";
+
+    /**
+     * ID of the first issue of testcsv.csv as generated by the first plugin versions.
+     */
+    @Test
+    public void testKnownIssueId() {
+        final BlackDuckIssue issue = issue("Apache Tomcat", "8.0.36", "null", "123");
+        Assert.assertEquals("e67304d7-5f5f-309f-b9b8-c041509ee807", issue.getId());
+    }
+
+    @Test
+    public void testIssueIdCompatibility() {
+        final String[] values = { null, "", " ", "Apache Tomcat", " spaces  everywhere ", "8.0.36", "CVE-2017-12617", "a:b", "café",
+                "日本語", "emoji 😀", "unpaired \ud83d surrogate", "tab\tand\nnew line" };
+        for (final String componentName : values) {
+            for (final String version : values) {
+                for (final String originId : values) {
+                    final BlackDuckIssue issue = issue(componentName, version, originId, componentName);
+                    Assert.assertEquals(legacyId(issue), issue.getId());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReportIssueIdCompatibility() throws Exception {
+        final int[] rows = { 0 };
+        try (final InputStream targetStream = new FileInputStream(COMPLEX_CSV)) {
+            new BlackDuckCSVParser().parseIssues(targetStream, new BlackDuckBeanProcessor() {
+                @Override
+                public void beanProcessed(final BlackDuckIssue bean, final ParsingContext context) {
+                    Assert.assertEquals(legacyId(bean), bean.getId());
+                    rows[0]++;
+                }
+            });
+        }
+        Assert.assertEquals(41, rows[0]);
+    }
+
+    private static BlackDuckIssue issue(final String componentName, final String version, final String originId, final String vulnerabilityId) {
+        final BlackDuckIssue issue = new BlackDuckIssue();
+        issue.setComponentName(componentName);
+        issue.setVersion(version);
+        issue.setChannelVersionOriginId(originId);
+        issue.setVulnerabilityId(vulnerabilityId);
+        return issue;
+    }
+
+    /**
+     * Original ID generation algorithm.
+     */
+    private static String legacyId(final BlackDuckIssue issue) {
+        final String uuidData = String.format("%s:%s:%s:%s", BlackDuckUtils.cleanName(issue.getComponentName()), BlackDuckUtils.cleanName(issue.getVersion()),
+                BlackDuckUtils.cleanName(issue.getChannelVersionOriginId()), issue.getVulnerabilityId());
+        return UUID.nameUUIDFromBytes(uuidData.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
@@ -0,0 +1,596 @@
+/**
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ * <p>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * <p>
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.blackducksoftware.integration.fortify.parser.BlackDuckIssueParser;
+import com.fortify.plugin.api.ScanBuilder;
+import com.fortify.plugin.api.ScanData;
+import com.fortify.plugin.api.ScanEntry;
+import com.fortify.plugin.api.ScanParsingException;
+import com.fortify.plugin.api.StaticVulnerabilityBuilder;
+import com.fortify.plugin.api.VulnerabilityHandler;
+import com.fortify.plugin.spi.VulnerabilityAttribute;
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+/**
+ * Testing the plugin callbacks with compressed and repeated uploads.
+ */
+public class BlackDuckIssueParserTest {
+    private static final String COMPLEX_CSV = "src/test/resources/complexcsv.csv";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Tests that a gzip compressed report gives the same issues as the plain one and the GUID of the uploaded bytes.
+     */
+    @Test
+    public void testGzipUpload() throws Exception {
+        final byte[] csv = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+        final ByteArrayOutputStream upload = new ByteArrayOutputStream();
+        try (final OutputStream gzip = new GZIPOutputStream(upload)) {
+            gzip.write(csv);
+        }
+        final ScanData scanData = scanData("complexcsv.csv.gz", upload.toByteArray());
+
+        Assert.assertEquals(DigestUtils.md5Hex(upload.toByteArray()), parseGuid(scanData));
+        Assert.assertEquals(parseIssueIds(scanData("complexcsv.csv", csv)), parseIssueIds(scanData));
+    }
+
+    /**
+     * Tests that CSV files of a zip archive are processed as one scan.
+     */
+    @Test
+    public void testZipUpload() throws Exception {
+        final byte[] csv = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+        final ByteArrayOutputStream upload = new ByteArrayOutputStream();
+        try (final ZipOutputStream zip = new ZipOutputStream(upload)) {
+            for (final String name : new String[] { "part1.csv", "readme.txt", "part2.csv" }) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(csv);
+                zip.closeEntry();
+            }
+        }
+        final ScanData scanData = scanData("complexcsv.zip", upload.toByteArray());
+
+        Assert.assertEquals(DigestUtils.md5Hex(upload.toByteArray()), parseGuid(scanData));
+        final List<String> singleFileIds = parseIssueIds(scanData("complexcsv.csv", csv));
+        final List<String> issueIds = parseIssueIds(scanData);
+        Assert.assertEquals(2 * singleFileIds.size(), issueIds.size());
+        Assert.assertEquals(singleFileIds, issueIds.subList(singleFileIds.size(), issueIds.size()));
+    }
+
+    /**
+     * Tests that a zip archive of CSV files with different headers fails instead of leaving out files.
+     */
+    @Test
+    public void testZipUploadWithDifferentHeaders() throws Exception {
+        final ByteArrayOutputStream upload = new ByteArrayOutputStream();
+        try (final ZipOutputStream zip = new ZipOutputStream(upload)) {
+            for (final String file : new String[] { COMPLEX_CSV, "src/test/resources/testcsv.csv" }) {
+                zip.putNextEntry(new ZipEntry(new File(file).getName()));
+                zip.write(Files.readAllBytes(new File(file).toPath()));
+                zip.closeEntry();
+            }
+        }
+        final ScanData scanData = scanData("mixed.zip", upload.toByteArray());
+
+        try {
+            parseGuid(scanData);
+            Assert.fail("Scan with different headers accepted");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("testcsv.csv"));
+        }
+        try {
+            parseIssueIds(scanData);
+            Assert.fail("Scan with different headers imported");
+        } catch (final ScanParsingException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("CSV parsing error"));
+        }
+    }
+
+    /**
+     * Tests that the second pass over a local file, read through a memory map, gives the same issues.
+     */
+    @Test
+    public void testLocalFileUpload() throws Exception {
+        final File csvFile = new File(COMPLEX_CSV);
+        final ScanData scanData = new ScanData() {
+            @Override
+            public String getSessionId() {
+                return "local-file-session";
+            }
+
+            @Override
+            public List<ScanEntry> getScanEntries() {
+                return Collections.singletonList(() -> csvFile.getName());
+            }
+
+            @Override
+            public InputStream getInputStream(final ScanEntry scanEntry) throws IOException {
+                return new FileInputStream(csvFile);
+            }
+
+            @Override
+            public InputStream getInputStream(final Predicate<String> matcher) throws IOException {
+                return new FileInputStream(csvFile);
+            }
+        };
+        final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+        Assert.assertNotNull(parseGuid(parser, scanData));
+        Assert.assertEquals(parseIssueIds(scanData("complexcsv.csv", Files.readAllBytes(csvFile.toPath()))),
+                parseIssueIds(parser, scanData, new AtomicInteger()));
+    }
+
+    /**
+     * Tests that the plugin exposes row counts, sampled timings and date failures of the import through JMX when
+     * enabled.
+     */
+    @Test
+    public void testMetricsMBean() throws Exception {
+        final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+        parser.start();
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(BlackDuckIssueParser.METRICS_MBEAN_NAME)));
+        parser.stop();
+        System.setProperty("blackduck.parser.jmxEnabled", "true");
+        parser.start();
+        try {
+            final byte[] csv = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+            final List<String> issueIds = parseIssueIds(parser, scanData("complexcsv.csv", csv), new AtomicInteger());
+
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(BlackDuckIssueParser.METRICS_MBEAN_NAME);
+            Assert.assertEquals((long) issueIds.size(), mBeanServer.getAttribute(name, "Rows"));
+            Assert.assertEquals((long) csv.length, mBeanServer.getAttribute(name, "Bytes"));
+            Assert.assertTrue((Long) mBeanServer.getAttribute(name, "DateParseFailures") > 0);
+            Assert.assertEquals(0L, mBeanServer.getAttribute(name, "HeaderValidationFailures"));
+            Assert.assertTrue((Double) mBeanServer.getAttribute(name, "RowsPerSecond") > 0);
+            final CompositeData handlerTime = (CompositeData) mBeanServer.getAttribute(name, "HandlerTime");
+            // first row and every 64th row after it are timed by default
+            Assert.assertEquals((issueIds.size() + 63L) / 64, handlerTime.get("count"));
+            parser.stop();
+
+            System.setProperty("blackduck.parser.timingSampleInterval", "1");
+            parser.start();
+            parseIssueIds(parser, scanData("complexcsv.csv", csv), new AtomicInteger());
+            Assert.assertEquals((long) issueIds.size(), ((CompositeData) mBeanServer.getAttribute(name, "HandlerTime")).get("count"));
+            Assert.assertEquals((long) issueIds.size(), ((CompositeData) mBeanServer.getAttribute(name, "TokenizeTime")).get("count"));
+        } finally {
+            System.clearProperty("blackduck.parser.timingSampleInterval");
+            System.clearProperty("blackduck.parser.jmxEnabled");
+            parser.stop();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(BlackDuckIssueParser.METRICS_MBEAN_NAME)));
+    }
+
+    /**
+     * Tests that parallel imports run on a pool shared by the uploads which is shut down when the plugin stops.
+     */
+    @Test
+    public void testParallelImport() throws Exception {
+        final byte[] csv = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+        final List<String> expectedIds = parseIssueIds(scanData("complexcsv.csv", csv));
+        System.setProperty("blackduck.parser.parallelism", "2");
+        System.setProperty("blackduck.parser.chunkSize", "1024");
+        final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+        try {
+            parser.start();
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(expectedIds, parseIssueIds(parser, scanData("complexcsv.csv", csv), new AtomicInteger()));
+            }
+            Assert.assertEquals(2, parallelParsingThreads());
+        } finally {
+            parser.stop();
+            System.clearProperty("blackduck.parser.parallelism");
+            System.clearProperty("blackduck.parser.chunkSize");
+        }
+        for (int i = 0; i < 100 && parallelParsingThreads() > 0; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(0, parallelParsingThreads());
+    }
+
+    private static long parallelParsingThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().startsWith("blackduck-parser-parallel-"))
+                .count();
+    }
+
+    /**
+     * Tests that concurrent uploads are admitted one by one with a concurrency of 1 and that their queue wait is timed.
+     */
+    @Test
+    public void testImportScheduler() throws Exception {
+        final int uploads = 4;
+        System.setProperty("blackduck.parser.maxConcurrentImports", "1");
+        System.setProperty("blackduck.parser.jmxEnabled", "true");
+        final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+        try {
+            parser.start();
+            final byte[] csv = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+            final List<String> expectedIds = parseIssueIds(scanData("complexcsv.csv", csv));
+            // first and last handler call of every upload
+            final long[][] handlerCalls = new long[uploads][2];
+            final List<Thread> threads = new ArrayList<>();
+            final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+            for (int i = 0; i < uploads; i++) {
+                final long[] calls = handlerCalls[i];
+                threads.add(new Thread(() -> {
+                    final List<String> issueIds = new ArrayList<>();
+                    try {
+                        parser.parseVulnerabilities(scanData("complexcsv.csv", csv), id -> {
+                            calls[issueIds.isEmpty() ? 0 : 1] = System.nanoTime();
+                            issueIds.add(id);
+                            return capturingBuilder(new HashMap<>());
+                        });
+                        Assert.assertEquals(expectedIds, issueIds);
+                    } catch (final Throwable e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertEquals(Collections.emptyList(), failures);
+            Arrays.sort(handlerCalls, (first, second) -> Long.compare(first[0], second[0]));
+            for (int i = 1; i < uploads; i++) {
+                Assert.assertTrue(handlerCalls[i][0] > handlerCalls[i - 1][1]);
+            }
+
+            final CompositeData queueWaitTime = (CompositeData) ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(BlackDuckIssueParser.METRICS_MBEAN_NAME), "QueueWaitTime");
+            Assert.assertEquals((long) uploads, queueWaitTime.get("count"));
+        } finally {
+            parser.stop();
+            System.clearProperty("blackduck.parser.maxConcurrentImports");
+            System.clearProperty("blackduck.parser.jmxEnabled");
+        }
+    }
+
+    /**
+     * Tests that a value longer than the column limit is imported cut and flagged instead of failing the import.
+     */
+    @Test
+    public void testHugeValue() throws Exception {
+        final List<String[]> rows = new CsvParser(new CsvParserSettings()).parseAll(new FileReader(COMPLEX_CSV));
+        final String[] headers = rows.get(0);
+        final String[] row = rows.get(1);
+        final int description = Arrays.asList(headers).indexOf("Description");
+        row[description] = String.join("", Collections.nCopies(3000, "\"huge\", "));
+
+        final Map<String, Object> attributes = new HashMap<>();
+        new BlackDuckIssueParser().parseVulnerabilities(scanData("huge.csv", csv(headers, row)), id -> capturingBuilder(attributes));
+
+        final String importedDescription = (String) attributes.get("description");
+        Assert.assertTrue(importedDescription.length() < row[description].length());
+        Assert.assertTrue(importedDescription.startsWith("\"huge\", \"huge\""));
+        Assert.assertTrue(importedDescription.endsWith("[truncated]"));
+        Assert.assertEquals("Description", attributes.get("truncatedColumns"));
+        Assert.assertEquals(row[Arrays.asList(headers).indexOf("URL")], attributes.get("url"));
+    }
+
+    /**
+     * Tests that attributes are read from configured columns and that an unknown severity is derived from the score.
+     */
+    @Test
+    public void testAttributeColumns() throws Exception {
+        final List<String[]> rows = new CsvParser(new CsvParserSettings()).parseAll(new FileReader(COMPLEX_CSV));
+        final String[] headers = rows.get(0);
+        final String[] row = rows.get(1);
+        row[Arrays.asList(headers).indexOf("Severity")] = "Unknown";
+        row[Arrays.asList(headers).indexOf("Base Score")] = "9.5";
+        System.setProperty("blackduck.parser.attributeColumns", "remediationComment=Scan date");
+        try {
+            final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+            parser.start();
+            final Map<String, Object> attributes = new HashMap<>();
+            parser.parseVulnerabilities(scanData("columns.csv", csv(headers, row)), id -> capturingBuilder(attributes));
+            parser.stop();
+
+            Assert.assertEquals(row[Arrays.asList(headers).indexOf("Scan date")], attributes.get("remediationComment"));
+            Assert.assertEquals(StaticVulnerabilityBuilder.Priority.Critical, attributes.get("priority"));
+        } finally {
+            System.clearProperty("blackduck.parser.attributeColumns");
+        }
+    }
+
+    /**
+     * Tests that a report with reordered and additional columns is imported with the same issue IDs.
+     */
+    @Test
+    public void testReorderedColumns() throws Exception {
+        final List<String[]> rows = new CsvParser(new CsvParserSettings()).parseAll(new FileReader(COMPLEX_CSV));
+        final List<String[]> reorderedRows = new ArrayList<>();
+        for (final String[] row : rows) {
+            final List<String> values = new ArrayList<>(Arrays.asList(row));
+            Collections.reverse(values);
+            values.add(2, reorderedRows.isEmpty() ? "Policy status" : "NOT_IN_VIOLATION");
+            reorderedRows.add(values.toArray(new String[values.size()]));
+        }
+
+        final List<String> issueIds = parseIssueIds(scanData("complexcsv.csv", Files.readAllBytes(new File(COMPLEX_CSV).toPath())));
+        Assert.assertEquals(issueIds, parseIssueIds(scanData("reordered.csv", csv(reorderedRows.toArray(new String[0][])))));
+    }
+
+    /**
+     * Tests that the fault tolerant import skips malformed rows, imports the other rows and writes the skipped rows
+     * with all their values to the quarantine file of the scan.
+     */
+    @Test
+    public void testFaultTolerantImport() throws Exception {
+        final List<String[]> rows = new CsvParser(new CsvParserSettings()).parseAll(new FileReader(COMPLEX_CSV));
+        final String[] headers = rows.get(0);
+        rows.set(2, Arrays.copyOf(rows.get(2), 5));
+        rows.get(3)[Arrays.asList(headers).indexOf("Base Score")] = "N/A";
+        final File quarantineDirectory = temporaryFolder.newFolder("quarantine");
+        System.setProperty("blackduck.parser.faultTolerant", "true");
+        System.setProperty("blackduck.parser.quarantineDirectory", quarantineDirectory.toString());
+        try {
+            final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+            parser.start();
+            final List<String> issueIds = parseIssueIds(parser, scanData("faulty/session", "faulty.csv", csv(rows.toArray(new String[0][]))),
+                    new AtomicInteger());
+            parser.stop();
+
+            Assert.assertEquals(rows.size() - 3, issueIds.size());
+            final List<String[]> quarantinedRows = new CsvParser(new CsvParserSettings())
+                    .parseAll(new FileReader(new File(quarantineDirectory, "quarantine-faulty_session.csv")));
+            Assert.assertEquals(3, quarantinedRows.size());
+            Assert.assertArrayEquals(new String[] { "2", "3", "Expected " + headers.length + " values, found 5" },
+                    Arrays.copyOf(quarantinedRows.get(1), 3));
+            Assert.assertEquals("3", quarantinedRows.get(2)[0]);
+            Assert.assertTrue(quarantinedRows.get(2)[2].startsWith("java.lang.NumberFormatException"));
+            Assert.assertArrayEquals(rows.get(3), new CsvParser(new CsvParserSettings()).parseAll(new StringReader(quarantinedRows.get(2)[3])).get(0));
+        } finally {
+            System.clearProperty("blackduck.parser.faultTolerant");
+            System.clearProperty("blackduck.parser.quarantineDirectory");
+        }
+    }
+
+    /**
+     * Tests that batched emission passes the same vulnerabilities on, including the partial batch at the end.
+     */
+    @Test
+    public void testBatchedEmission() throws Exception {
+        final ScanData scanData = scanData("complexcsv.csv", Files.readAllBytes(new File(COMPLEX_CSV).toPath()));
+        final AtomicInteger customAttributes = new AtomicInteger();
+        final List<String> issueIds = parseIssueIds(new BlackDuckIssueParser(), scanData, customAttributes);
+        System.setProperty("blackduck.parser.emissionBatchSize", "16");
+        try {
+            final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+            parser.start();
+            final AtomicInteger batchedCustomAttributes = new AtomicInteger();
+            Assert.assertEquals(issueIds, parseIssueIds(parser, scanData, batchedCustomAttributes));
+            Assert.assertEquals(customAttributes.get(), batchedCustomAttributes.get());
+            parser.stop();
+        } finally {
+            System.clearProperty("blackduck.parser.emissionBatchSize");
+        }
+    }
+
+    /**
+     * Tests that rows repeating an issue ID are skipped or passed on depending on the duplicate policy.
+     */
+    @Test
+    public void testDuplicateRows() throws Exception {
+        final List<String[]> rows = new CsvParser(new CsvParserSettings()).parseAll(new FileReader(COMPLEX_CSV));
+        final List<String> issueIds = parseIssueIds(scanData("complexcsv.csv", csv(rows.toArray(new String[0][]))));
+        final int componentName = Arrays.asList(rows.get(0)).indexOf("Component name");
+        final String[] duplicate = rows.get(1).clone();
+        duplicate[componentName] = " " + duplicate[componentName].replace("", " ").trim() + " ";
+        rows.add(duplicate);
+        rows.add(rows.get(2));
+        final ScanData scanData = scanData("duplicates.csv", csv(rows.toArray(new String[0][])));
+        try {
+            System.setProperty("blackduck.parser.duplicatePolicy", "skip");
+            System.setProperty("blackduck.parser.jmxEnabled", "true");
+            final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+            parser.start();
+            Assert.assertEquals(issueIds, parseIssueIds(parser, scanData, new AtomicInteger()));
+            Assert.assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+                    new ObjectName(BlackDuckIssueParser.METRICS_MBEAN_NAME), "DuplicateRows"));
+            parser.stop();
+
+            System.setProperty("blackduck.parser.duplicatePolicy", "off");
+            parser.start();
+            final List<String> allIds = new ArrayList<>(issueIds);
+            allIds.add(issueIds.get(0));
+            allIds.add(issueIds.get(1));
+            Assert.assertEquals(allIds, parseIssueIds(parser, scanData, new AtomicInteger()));
+            Assert.assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+                    new ObjectName(BlackDuckIssueParser.METRICS_MBEAN_NAME), "DuplicateRows"));
+            parser.stop();
+        } finally {
+            System.clearProperty("blackduck.parser.duplicatePolicy");
+            System.clearProperty("blackduck.parser.jmxEnabled");
+        }
+    }
+
+    /**
+     * Tests that a re-upload of the same report is replayed from the cache with the same vulnerabilities.
+     */
+    @Test
+    public void testReplayCache() throws Exception {
+        final Path cacheDirectory = temporaryFolder.newFolder("blackduck-replay-cache").toPath();
+        System.setProperty("blackduck.parser.replayCache", "true");
+        System.setProperty("blackduck.parser.replayCacheDirectory", cacheDirectory.toString());
+        System.setProperty("blackduck.parser.jmxEnabled", "true");
+        try {
+            final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+            parser.start();
+            final byte[] csv = Files.readAllBytes(new File(COMPLEX_CSV).toPath());
+            final ScanData scanData = scanData("upload-session", "complexcsv.csv", csv);
+            final AtomicInteger customAttributes = new AtomicInteger();
+            final String guid = parseGuid(parser, scanData);
+            final List<String> issueIds = parseIssueIds(parser, scanData, customAttributes);
+            Assert.assertTrue(Files.isRegularFile(cacheDirectory.resolve(guid + ".bin")));
+
+            final ScanData reupload = scanData("reupload-session", "complexcsv.csv", csv);
+            final AtomicInteger replayedCustomAttributes = new AtomicInteger();
+            Assert.assertEquals(guid, parseGuid(parser, reupload));
+            Assert.assertEquals(issueIds, parseIssueIds(parser, reupload, replayedCustomAttributes));
+            Assert.assertEquals(customAttributes.get(), replayedCustomAttributes.get());
+            Assert.assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+                    new ObjectName(BlackDuckIssueParser.METRICS_MBEAN_NAME), "ReplayedScans"));
+            parser.stop();
+        } finally {
+            System.clearProperty("blackduck.parser.replayCache");
+            System.clearProperty("blackduck.parser.replayCacheDirectory");
+            System.clearProperty("blackduck.parser.jmxEnabled");
+        }
+    }
+
+    private static byte[] csv(final String[]... rows) {
+        final StringBuilder csv = new StringBuilder();
+        for (final String[] values : rows) {
+            for (int i = 0; i < values.length; i++) {
+                csv.append(i == 0 ? "" : ",").append(values[i] == null ? "" : '"' + values[i].replace("\"", "\"\"") + '"');
+            }
+            csv.append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return builder putting custom attribute values by attribute name and the priority into the map
+     */
+    private static StaticVulnerabilityBuilder capturingBuilder(final Map<String, Object> attributes) {
+        return (StaticVulnerabilityBuilder) Proxy.newProxyInstance(
+                StaticVulnerabilityBuilder.class.getClassLoader(), new Class[] { StaticVulnerabilityBuilder.class },
+                (proxy, method, args) -> {
+                    if (method.getName().endsWith("CustomAttributeValue")) {
+                        attributes.put(((VulnerabilityAttribute) args[0]).attributeName(), args[1]);
+                    } else if (method.getName().equals("setPriority")) {
+                        attributes.put("priority", args[0]);
+                    }
+                    return method.getReturnType().isInstance(proxy) ? proxy : null;
+                });
+    }
+
+    private static ScanData scanData(final String entryName, final byte[] content) {
+        return scanData(null, entryName, content);
+    }
+
+    private static ScanData scanData(final String sessionId, final String entryName, final byte[] content) {
+        return new ScanData() {
+            @Override
+            public String getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public List<ScanEntry> getScanEntries() {
+                return Collections.singletonList(() -> entryName);
+            }
+
+            @Override
+            public InputStream getInputStream(final ScanEntry scanEntry) throws IOException {
+                return new ByteArrayInputStream(content);
+            }
+
+            @Override
+            public InputStream getInputStream(final Predicate<String> matcher) throws IOException {
+                return new ByteArrayInputStream(content);
+            }
+        };
+    }
+
+    private static String parseGuid(final ScanData scanData) throws Exception {
+        return parseGuid(new BlackDuckIssueParser(), scanData);
+    }
+
+    private static String parseGuid(final BlackDuckIssueParser parser, final ScanData scanData) throws Exception {
+        final String[] guid = new String[1];
+        final ScanBuilder scanBuilder = (ScanBuilder) Proxy.newProxyInstance(ScanBuilder.class.getClassLoader(), new Class[] { ScanBuilder.class },
+                (proxy, method, args) -> {
+                    if ("setGuid".equals(method.getName())) {
+                        guid[0] = (String) args[0];
+                    }
+                    return method.getReturnType().isInstance(proxy) ? proxy : null;
+                });
+        parser.parseScan(scanData, scanBuilder);
+        return guid[0];
+    }
+
+    private static List<String> parseIssueIds(final ScanData scanData) throws Exception {
+        return parseIssueIds(new BlackDuckIssueParser(), scanData, new AtomicInteger());
+    }
+
+    private static List<String> parseIssueIds(final BlackDuckIssueParser parser, final ScanData scanData, final AtomicInteger customAttributes)
+            throws Exception {
+        final List<String> issueIds = new ArrayList<>();
+        final StaticVulnerabilityBuilder vulnerabilityBuilder = (StaticVulnerabilityBuilder) Proxy.newProxyInstance(
+                StaticVulnerabilityBuilder.class.getClassLoader(), new Class[] { StaticVulnerabilityBuilder.class },
+                (proxy, method, args) -> {
+                    if (method.getName().endsWith("CustomAttributeValue")) {
+                        customAttributes.incrementAndGet();
+                    }
+                    return method.getReturnType().isInstance(proxy) ? proxy : null;
+                });
+        final VulnerabilityHandler vulnerabilityHandler = id -> {
+            issueIds.add(id);
+            return vulnerabilityBuilder;
+        };
+        parser.parseVulnerabilities(scanData, vulnerabilityHandler);
+        return issueIds;
+    }
+}
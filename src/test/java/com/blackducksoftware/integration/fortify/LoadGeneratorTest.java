@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ * <p>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * <p>
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.blackducksoftware.integration.fortify.harness.FakeScanData;
+import com.blackducksoftware.integration.fortify.harness.FakeVulnerabilityHandler;
+import com.blackducksoftware.integration.fortify.harness.HubReportGenerator;
+import com.blackducksoftware.integration.fortify.harness.LoadGenerator;
+import com.blackducksoftware.integration.fortify.harness.RecordingScanBuilder;
+import com.blackducksoftware.integration.fortify.parser.BlackDuckIssueParser;
+
+/**
+ * Testing the plugin end to end through the SSC stand-in.
+ */
+public class LoadGeneratorTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Tests that an upload read from a file, which the plugin maps into memory, and the same upload read from memory
+     * give the same scan and vulnerabilities.
+     */
+    @Test
+    public void testFileAndMemoryUploads() throws Exception {
+        final Path report = report(50);
+        final byte[] content = Files.readAllBytes(report);
+        final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+        parser.start();
+        try {
+            final RecordingScanBuilder fileScan = new RecordingScanBuilder();
+            final FakeScanData fileUpload = FakeScanData.ofFile("file-session", report);
+            parser.parseScan(fileUpload, fileScan);
+            final FakeVulnerabilityHandler fileVulnerabilities = FakeVulnerabilityHandler.inMemory();
+            parser.parseVulnerabilities(fileUpload, fileVulnerabilities);
+
+            final RecordingScanBuilder memoryScan = new RecordingScanBuilder();
+            final FakeScanData memoryUpload = FakeScanData.inMemory("memory-session", "report.csv", content);
+            parser.parseScan(memoryUpload, memoryScan);
+            final FakeVulnerabilityHandler memoryVulnerabilities = FakeVulnerabilityHandler.inMemory();
+            parser.parseVulnerabilities(memoryUpload, memoryVulnerabilities);
+
+            Assert.assertTrue(fileScan.isCompleted());
+            Assert.assertEquals(fileScan.getGuid(), memoryScan.getGuid());
+            Assert.assertEquals(50, fileVulnerabilities.getCompleted());
+            Assert.assertEquals(fileVulnerabilities.getVulnerabilities().toString(), memoryVulnerabilities.getVulnerabilities().toString());
+        } finally {
+            parser.stop();
+        }
+    }
+
+    /**
+     * Tests that concurrent uploads each pass all rows of the report to SSC.
+     */
+    @Test
+    public void testConcurrentUploads() throws Exception {
+        final LoadGenerator generator = LoadGenerator.fromArgs("--uploads=4", "--concurrency=2", "--latency-micros=5", "--count-allocations");
+        generator.setReport(report(30));
+        final BlackDuckIssueParser parser = new BlackDuckIssueParser();
+        parser.start();
+        try {
+            final LoadGenerator.Result result = generator.run(parser);
+            Assert.assertEquals(4, result.getCompletedUploads());
+            Assert.assertEquals(0, result.getFailedUploads());
+            Assert.assertEquals(4 * 30, result.getVulnerabilities());
+            Assert.assertTrue(result.getAllocatedBytesPerVulnerability() > 0);
+        } finally {
+            parser.stop();
+        }
+    }
+
+    private Path report(final int rows) throws Exception {
+        final Path report = temporaryFolder.newFile("report.csv").toPath();
+        try (final Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            HubReportGenerator.write(writer, rows);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ * <p>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * <p>
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Date conversion of report values, in the package of the converter to test its cache with a small size.
+ */
+public class BlackDuckDateConverterTest {
+
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+
+    /**
+     * Tests that yyyy-MM-dd dates are converted to the start of the day in the time zone of the converter.
+     */
+    @Test
+    public void testDate() {
+        final BlackDuckDateConverter converter = new BlackDuckDateConverter(ZONE, 10);
+        Assert.assertEquals(date(LocalDate.of(2017, 3, 1)), converter.toDate("2017-03-01"));
+        Assert.assertEquals(date(LocalDate.of(2017, 3, 1)), converter.toDate(" 2017-03-01 "));
+        Assert.assertEquals(date(LocalDate.of(9999, 12, 31)), converter.toDate("9999-12-31"));
+        Assert.assertNull(converter.toDate(null));
+        Assert.assertNull(converter.toDate(" "));
+        Assert.assertEquals(0, converter.getReportedFailures());
+    }
+
+    /**
+     * Tests that dates the fixed width conversion does not resolve are converted like the formatter does.
+     */
+    @Test
+    public void testFormatterFallback() {
+        final BlackDuckDateConverter converter = new BlackDuckDateConverter(ZONE, 10);
+        Assert.assertEquals(date(LocalDate.of(2018, 2, 28)), converter.toDate("2018-02-31"));
+        Assert.assertEquals(date(LocalDate.of(2016, 2, 29)), converter.toDate("2016-02-30"));
+        Assert.assertNull(converter.toDate("0000-01-01"));
+        Assert.assertNull(converter.toDate("2018-13-01"));
+        Assert.assertNull(converter.toDate("2018-1-01"));
+        Assert.assertEquals(3, converter.getReportedFailures());
+    }
+
+    /**
+     * Tests that date and time values are converted in the time zone of the converter, with or without the quotes of the
+     * CSV value.
+     */
+    @Test
+    public void testDateTime() {
+        final BlackDuckDateConverter converter = new BlackDuckDateConverter(ZONE, 10);
+        final Date expected = Date.from(LocalDateTime.of(2017, 3, 1, 13, 45, 30, 123000000).atZone(ZONE).toInstant());
+        Assert.assertEquals(expected, converter.toDateTime("\"2017-03-01 13:45:30.123\""));
+        Assert.assertEquals(expected, converter.toDateTime(" \"2017-03-01 13:45:30.123\" "));
+        Assert.assertEquals(expected, converter.toDateTime("2017-03-01 13:45:30.123"));
+        Assert.assertNull(converter.toDateTime("\"2017-03-01\""));
+        Assert.assertNull(converter.toDateTime("\""));
+        Assert.assertEquals(2, converter.getReportedFailures());
+    }
+
+    /**
+     * Tests that converted dates are not shared, a caller changing one does not change the cached date.
+     */
+    @Test
+    public void testCachedDatesAreCopies() {
+        final BlackDuckDateConverter converter = new BlackDuckDateConverter(ZoneOffset.UTC, 10);
+        final Date date = converter.toDate("2017-03-01");
+        date.setTime(0);
+        Assert.assertEquals(date(LocalDate.of(2017, 3, 1), ZoneOffset.UTC), converter.toDate("2017-03-01"));
+    }
+
+    /**
+     * Tests that a malformed value repeated over many rows is reported once.
+     */
+    @Test
+    public void testFailureReportedOnce() {
+        final BlackDuckDateConverter converter = new BlackDuckDateConverter(ZONE, 10);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNull(converter.toDate("N/A"));
+            Assert.assertNull(converter.toDateTime("\"N/A\""));
+        }
+        Assert.assertEquals(2, converter.getReportedFailures());
+        converter.toDate("2017-02-30x");
+        Assert.assertEquals(3, converter.getReportedFailures());
+    }
+
+    /**
+     * Tests that the cache is cleared at its size limit, an evicted malformed value is reported again.
+     */
+    @Test
+    public void testCacheEviction() {
+        final BlackDuckDateConverter converter = new BlackDuckDateConverter(ZONE, 2);
+        converter.toDate("bad-1");
+        converter.toDate("bad-2");
+        converter.toDate("bad-1");
+        Assert.assertEquals(2, converter.getReportedFailures());
+        // third value clears the cache of two entries
+        converter.toDate("bad-3");
+        converter.toDate("bad-3");
+        Assert.assertEquals(3, converter.getReportedFailures());
+        converter.toDate("bad-1");
+        Assert.assertEquals(4, converter.getReportedFailures());
+        Assert.assertEquals(date(LocalDate.of(2017, 3, 1)), converter.toDate("2017-03-01"));
+    }
+
+    private static Date date(final LocalDate localDate) {
+        return date(localDate, ZONE);
+    }
+
+    private static Date date(final LocalDate localDate, final ZoneId zoneId) {
+        return Date.from(localDate.atStartOfDay(zoneId).toInstant());
+    }
+}
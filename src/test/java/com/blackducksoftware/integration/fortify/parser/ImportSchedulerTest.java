@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ * <p>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * <p>
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ImportSchedulerTest {
+
+    @Test
+    public void testEstimateMemory() {
+        final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+        settings.setDuplicatePolicy(DuplicatePolicy.SKIP);
+        final long small = ImportScheduler.estimateMemory(new BlackDuckScanSummary("small", null, 1000, 1000 * 1024), settings);
+        final long large = ImportScheduler.estimateMemory(new BlackDuckScanSummary("large", null, 10000000, 10000000L * 1024), settings);
+        assertTrue(small < large);
+        // the duplicate detection table of ten million rows is off the heap
+        assertTrue(large >= DuplicateIdSet.memoryFor(10000000));
+
+        settings.setDuplicatePolicy(DuplicatePolicy.OFF);
+        assertEquals(large - DuplicateIdSet.memoryFor(10000000),
+                ImportScheduler.estimateMemory(new BlackDuckScanSummary("large", null, 10000000, 10000000L * 1024), settings));
+    }
+
+    @Test
+    public void testEstimateMemoryOfUnreadScan() {
+        final BlackDuckParserSettings settings = new BlackDuckParserSettings();
+        assertTrue(ImportScheduler.estimateMemory(null, settings) > 0);
+    }
+}
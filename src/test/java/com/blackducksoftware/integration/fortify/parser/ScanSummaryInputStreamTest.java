@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2016 Black Duck Software, Inc.
+ * http://www.blackducksoftware.com/
+ * <p>
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ * <p>
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.parser;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Summary collected while a scan is read, in the package of the stream to read it without the plugin callbacks.
+ */
+public class ScanSummaryInputStreamTest {
+
+    private static final String HEADER = "Project name,Component name,Version,Vulnerability id,Description,Scan date\n";
+
+    private static final Date SCAN_DATE = Date.from(LocalDateTime.of(2018, 2, 22, 19, 20, 33, 700000000).atZone(ZoneId.systemDefault()).toInstant());
+
+    /**
+     * Tests that the scan date is read from the first row whether the report quotes it or not.
+     */
+    @Test
+    public void testScanDate() throws Exception {
+        Assert.assertEquals(SCAN_DATE, summary(HEADER + "solr,Apache Tomcat,8.0.36,123,description,\"2018-02-22 19:20:33.700\"\n").getScanDate());
+        Assert.assertEquals(SCAN_DATE, summary(HEADER + "solr,Apache Tomcat,8.0.36,123,description,2018-02-22 19:20:33.700\n").getScanDate());
+        Assert.assertEquals(SCAN_DATE, summary(HEADER + "solr,Apache Tomcat,8.0.36,123,\"multi\nline\",2018-02-22 19:20:33.700\r\n"
+                + "solr,Apache Tomcat,8.0.36,124,description,2018-02-23 10:00:00.000\n").getScanDate());
+        Assert.assertNull(summary(HEADER + "solr,Apache Tomcat,8.0.36,123,description,2/22/18 19:20\n").getScanDate());
+        Assert.assertNull(summary(HEADER).getScanDate());
+    }
+
+    /**
+     * Tests that the scan date of a report without the column header is read from the last value of the first row.
+     */
+    @Test
+    public void testScanDateWithoutHeader() throws Exception {
+        Assert.assertEquals(SCAN_DATE, summary("Project name,Component name,Version\nsolr,Apache Tomcat,8.0.36,2018-02-22 19:20:33.700,\n").getScanDate());
+    }
+
+    /**
+     * Tests that rows are counted like the tokenizer reads them: line breaks in quoted values and a quote inside of an
+     * unquoted value do not change the count.
+     */
+    @Test
+    public void testRowCount() throws Exception {
+        final String row = "solr,Apache Tomcat,8.0.36,123,description,2018-02-22 19:20:33.700\n";
+        Assert.assertEquals(3, summary(HEADER + row + "solr,Apache Tomcat,8.0.36,124,\"multi\r\n\"\"line\"\"\",2018-02-22\n\n" + row).getRowCount());
+        Assert.assertEquals(4, summary(HEADER + row + "solr,solrWar 5\" edition,8.0.36,124,description,2018-02-22\n" + row
+                + "solr,Apache Tomcat,8.0.36,125,\"multi\nline\",2018-02-22\n").getRowCount());
+        Assert.assertEquals(2, summary(HEADER + "solr,Apache Tomcat,8.0.36,123,  \"quoted\nafter whitespace\"  ,2018-02-22\n" + row).getRowCount());
+    }
+
+    private static BlackDuckScanSummary summary(final String csv) throws Exception {
+        try (final ScanSummaryInputStream summaryStream = new ScanSummaryInputStream(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))) {
+            summaryStream.drain();
+            return summaryStream.getSummary();
+        }
+    }
+}